@@ -3,12 +3,18 @@ package com.example.backend_3.auth;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
@@ -16,13 +22,24 @@ public class JwtUtil {
   @Value("${SECRET}")
   private String secret;
 
+  // Verified tokens kept in memory, 0 disables the cache
+  @Value("${jwt.cache.max-size:10000}")
+  private int cacheMaxSize;
+
   private Key key;
+  private JwtParser parser;
+
+  // Keyed by SHA-256 of the token so raw bearer tokens are never held in memory
+  private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
 
   private static final long EXPIRATION  = 3600_000; // 1h
 
+  private record VerifiedToken(String subject, long expiresAt) {}
+
   @PostConstruct
   public void init() {
     this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    this.parser = Jwts.parserBuilder().setSigningKey(key).build();
   }
 
   public String generateToken(String username) {
@@ -34,17 +51,61 @@ public class JwtUtil {
     .compact();
   }
 
+  /**
+   * Verifies the token once, then serves the subject from memory until the token's {@code exp}.
+   */
   public String extractUsername(String token) {
-    return Jwts.parserBuilder().setSigningKey(key).build()
-      .parseClaimsJws(token).getBody().getSubject();
+    if (cacheMaxSize <= 0) {
+      return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    String cacheKey = hash(token);
+    VerifiedToken cached = verifiedTokens.get(cacheKey);
+    if (cached != null) {
+      if (System.currentTimeMillis() < cached.expiresAt()) {
+        return cached.subject();
+      }
+      // Expired: drop it and let the parser raise ExpiredJwtException
+      verifiedTokens.remove(cacheKey);
+    }
+
+    Claims claims = parser.parseClaimsJws(token).getBody();
+    Date expiration = claims.getExpiration();
+    if (expiration != null && hasRoom()) {
+      verifiedTokens.put(cacheKey, new VerifiedToken(claims.getSubject(), expiration.getTime()));
+    }
+    return claims.getSubject();
   }
 
   public boolean validateToken(String token) {
     try {
-      Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+      extractUsername(token);
       return true;
     } catch (JwtException e) {
       return false;
     }
   }
+
+  @Scheduled(fixedRate = 60_000)
+  public void evictExpiredTokens() {
+    long now = System.currentTimeMillis();
+    verifiedTokens.values().removeIf(t -> t.expiresAt() <= now);
+  }
+
+  private boolean hasRoom() {
+    if (verifiedTokens.size() < cacheMaxSize) {
+      return true;
+    }
+    evictExpiredTokens();
+    return verifiedTokens.size() < cacheMaxSize;
+  }
+
+  private static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
 }
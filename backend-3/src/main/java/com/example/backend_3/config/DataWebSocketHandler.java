@@ -1,23 +0,0 @@
-package com.example.backend_3.config;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.web.socket.*;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
-import org.springframework.lang.NonNull;
-
-public class DataWebSocketHandler extends TextWebSocketHandler {
-
-    private static final Logger logger = LoggerFactory.getLogger(DataWebSocketHandler.class);
-
-    @Override
-    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
-        logger.info("✅ WebSocket connection established: {}", session.getId());
-    }
-
-    @Override
-    protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) throws Exception {
-        logger.info("📩 Received message: {}", message.getPayload());
-        session.sendMessage(new TextMessage("Echo: " + message.getPayload()));
-    }
-}
@@ -1,9 +1,12 @@
 package com.example.backend_3.config;
 
 import com.example.backend_3.redis.RedisSubscriber;
+import com.example.backend_3.service.InformationService;
+import com.example.backend_3.websocket.WebSocketFanout;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.data.redis.connection.*;
 import org.springframework.data.redis.connection.lettuce.*;
 import org.springframework.data.redis.listener.*;
@@ -16,6 +19,13 @@ public class RedisConfig {
     @Value("${REDIS_URL}")
     private String redisUrl;
 
+    // pubsub = subscribe to the sensor channels, stream = SensorStreamConsumer reads them from streams
+    @Value("${sensor.ingest.mode:pubsub}")
+    private String ingestMode;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
         RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
@@ -35,14 +45,32 @@ public class RedisConfig {
         return new LettuceConnectionFactory(config);
     }
 
+    // Every channel under sensor:* is picked up, new sensor types need no redeploy
     @Bean
-    public RedisMessageListenerContainer container(RedisConnectionFactory factory, RedisSubscriber subscriber) {
+    public RedisMessageListenerContainer container(
+        RedisConnectionFactory factory,
+        RedisSubscriber subscriber,
+        InformationService informationService,
+        WebSocketFanout webSocketFanout
+    ) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(factory);
+        if (virtualThreads) {
+            // Messages are dispatched on a new thread each, which is only cheap for virtual threads
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("redis-listener-");
+            executor.setVirtualThreads(true);
+            container.setTaskExecutor(executor);
+        }
 
-        container.addMessageListener(subscriber, new ChannelTopic("sensor:temperature"));
-        container.addMessageListener(subscriber, new ChannelTopic("sensor:humidity"));
-        container.addMessageListener(subscriber, new ChannelTopic("sensor:voltage"));
+        // Edge nodes only relay frames published by the ingest node
+        if ("pubsub".equals(ingestMode) && !webSocketFanout.isEdge()) {
+            container.addMessageListener(subscriber, new PatternTopic("sensor:*"));
+            container.addMessageListener(subscriber, new ChannelTopic(RedisSubscriber.BATCH_CHANNEL));
+        }
+        if (webSocketFanout.isRelayed()) {
+            container.addMessageListener(webSocketFanout, new ChannelTopic(WebSocketFanout.CHANNEL));
+        }
+        container.addMessageListener(informationService, new ChannelTopic(InformationService.INVALIDATION_CHANNEL));
 
         return container;
     }
@@ -1,6 +1,7 @@
 package com.example.backend_3.config;
 
 import com.example.backend_3.auth.JwtFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -25,9 +26,17 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
                 // Configure public endpoints
-                .requestMatchers(HttpMethod.PUT, "/api/information").authenticated()
-                .requestMatchers(HttpMethod.GET, "/api/data").authenticated()
+                .requestMatchers(HttpMethod.PUT, "/api/information", "/api/information/**").authenticated()
+                // The request was authorized on its first dispatch; long-poll and SSE resume on an ASYNC dispatch
+                // that JwtFilter does not see again
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/data", "/api/devices/*/data", "/api/data/stream").authenticated()
+                // Exports hold a database cursor and one of few permits for as long as they run
+                .requestMatchers(HttpMethod.GET, "/api/data/*/export", "/api/devices/*/data/*/export").authenticated()
                 .requestMatchers(HttpMethod.POST, "/api/logout").authenticated()
+                // Metrics carry device ids and pipeline internals, only liveness stays public
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/**").authenticated()
                 .anyRequest().permitAll()
             )
             .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
@@ -1,5 +1,6 @@
 package com.example.backend_3.config;
 
+import com.example.backend_3.websocket.DataWebSocketHandler;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
 import org.springframework.web.socket.config.annotation.*;
@@ -8,8 +9,14 @@ import org.springframework.web.socket.config.annotation.*;
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private final DataWebSocketHandler dataWebSocketHandler;
+
+    public WebSocketConfig(DataWebSocketHandler dataWebSocketHandler) {
+        this.dataWebSocketHandler = dataWebSocketHandler;
+    }
+
     @Override
     public void registerWebSocketHandlers(@NonNull WebSocketHandlerRegistry registry) {
-        registry.addHandler(new DataWebSocketHandler(), "/api/data").setAllowedOrigins("*");
+        registry.addHandler(dataWebSocketHandler, "/api/data").setAllowedOrigins("*");
     }
 }
@@ -1,7 +1,9 @@
 package com.example.backend_3.controllers;
 
+import com.example.backend_3.exception.DeviceNotFoundException;
 import com.example.backend_3.service.InformationService;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,13 +24,35 @@ public class InformationController {
         return informationService.getInformation();
     }
 
-    @PutMapping("/information")
-    public ResponseEntity<?> updateInformation(@RequestBody Map<String, Object> payload) {
+    @GetMapping("/information/{id}")
+    public ResponseEntity<?> getInformation(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(informationService.getInformation(id));
+        } catch (DeviceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping({"/information", "/information/{id}"})
+    public ResponseEntity<?> updateInformation(
+        @PathVariable(required = false) String id,
+        @RequestBody Map<String, Object> payload
+    ) {
         if (payload.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "No data provided"));
         }
 
-        payload.forEach((key, value) -> informationService.updateInformation(key, value));
+        try {
+            if (id != null) {
+                informationService.updateInformation(id, payload);
+            } else {
+                informationService.updateInformation(payload);
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (DeviceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
 
         return ResponseEntity.ok(Map.of(
             "message", "Information updated successfully",
@@ -1,29 +1,73 @@
 package com.example.backend_3.controllers;
 
-import org.springframework.core.io.ClassPathResource;
+import com.example.backend_3.service.PictureService;
+import com.example.backend_3.service.PictureVariantService;
+import com.example.backend_3.service.PictureService.StoredPicture;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
 
-import java.io.IOException;
-import java.nio.file.Files;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api")
 @Tag(name = "Picture")
 public class PictureController {
 
+    private final PictureService pictureService;
+    private final PictureVariantService pictureVariantService;
+    private final CacheControl cacheControl;
+
+    public PictureController(
+        PictureService pictureService,
+        PictureVariantService pictureVariantService,
+        @Value("${picture.max-age-seconds:3600}") long maxAgeSeconds
+    ) {
+        this.pictureService = pictureService;
+        this.pictureVariantService = pictureVariantService;
+        this.cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+    }
+
+    // Spring answers If-None-Match / If-Modified-Since with 304 and Range with 206 for Resource bodies.
+    // w (pixels) and format (jpg|png) select a resized variant from the on-disk cache.
     @GetMapping("/picture")
-    public ResponseEntity<byte[]> getImage() throws IOException {
-        Resource imgFile = new ClassPathResource("static/image/device-3.jpg");
+    public ResponseEntity<?> getImage(
+        @RequestParam(required = false) Integer w,
+        @RequestParam(required = false) String format
+    ) {
+        return toResponse(pictureService.getDefaultPicture(), w, format);
+    }
 
-        byte[] imageBytes = Files.readAllBytes(imgFile.getFile().toPath());
+    @GetMapping("/picture/{id}")
+    public ResponseEntity<?> getPicture(
+        @PathVariable long id,
+        @RequestParam(required = false) Integer w,
+        @RequestParam(required = false) String format
+    ) {
+        return toResponse(pictureService.getPicture(id), w, format);
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.IMAGE_JPEG);
+    private ResponseEntity<?> toResponse(Optional<StoredPicture> picture, Integer w, String format) {
+        try {
+            return toResponse(picture.map(source -> pictureVariantService.getVariant(source, w, format)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
-        return new ResponseEntity<>(imageBytes, headers, HttpStatus.OK);
+    private ResponseEntity<Resource> toResponse(Optional<StoredPicture> picture) {
+        return picture
+            .map(p -> ResponseEntity.ok()
+                .contentType(p.contentType())
+                .eTag(p.etag())
+                .lastModified(p.lastModified())
+                .cacheControl(cacheControl)
+                .body(p.resource()))
+            .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
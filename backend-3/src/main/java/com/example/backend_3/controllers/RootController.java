@@ -16,7 +16,19 @@ public class RootController {
             "/api/picture",
             "/api/picture/{id}",
             "/api/data",
-            "/api/data/{id}"
+            "/api/data/{id}",
+            "/api/data/stream",
+            "/api/data/{type}/history",
+            "/api/data/{type}/recent",
+            "/api/data/{type}/export",
+            "/api/sensors",
+            "/api/devices",
+            "/api/devices/{device}/sensors",
+            "/api/devices/{device}/data",
+            "/api/devices/{device}/data/{type}",
+            "/api/devices/{device}/data/{type}/history",
+            "/api/devices/{device}/data/{type}/recent",
+            "/api/devices/{device}/data/{type}/export"
         );
 
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,33 @@
+package com.example.backend_3.controllers;
+
+import com.example.backend_3.models.SensorInfo;
+import com.example.backend_3.service.SensorRegistry;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api")
+public class SensorController {
+
+    private final SensorRegistry sensorRegistry;
+
+    public SensorController(SensorRegistry sensorRegistry) {
+        this.sensorRegistry = sensorRegistry;
+    }
+
+    @GetMapping("/sensors")
+    public List<SensorInfo> getSensors() {
+        return sensorRegistry.getSensors();
+    }
+
+    @GetMapping("/devices")
+    public List<String> getDevices() {
+        return sensorRegistry.getDevices();
+    }
+
+    @GetMapping("/devices/{device}/sensors")
+    public List<SensorInfo> getDeviceSensors(@PathVariable String device) {
+        return sensorRegistry.getSensors(device);
+    }
+}
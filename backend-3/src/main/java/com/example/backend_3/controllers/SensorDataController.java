@@ -1,31 +1,290 @@
 package com.example.backend_3.controllers;
 
 import com.example.backend_3.exception.SensorDataSerializationException;
+import com.example.backend_3.models.SensorReading;
 import com.example.backend_3.redis.RedisSubscriber;
+import com.example.backend_3.service.RecentReadingsStore;
+import com.example.backend_3.service.ConcurrencyGuard;
+import com.example.backend_3.service.ConcurrencyGuard.Permit;
+import com.example.backend_3.service.ConcurrencyGuards;
+import com.example.backend_3.service.SensorExportService;
+import com.example.backend_3.service.SensorExportService.Format;
+import com.example.backend_3.service.SensorHistoryService;
+import com.example.backend_3.service.SensorRollupService.Resolution;
+import com.example.backend_3.service.SensorSnapshotService;
+import com.example.backend_3.service.SensorSnapshotService.Snapshot;
+import com.example.backend_3.sse.SensorEventStream;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api")
 public class SensorDataController {
 
+    private static final long DEFAULT_HISTORY_RANGE = 3_600_000;  // 1h
+    private static final int DEFAULT_HISTORY_POINTS = 300;
+    private static final String VERSION_HEADER = "X-Data-Version";
+    private static final String EXPORT_PERMIT_INTERCEPTOR = SensorDataController.class.getName() + ".exportPermit";
+
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RedisSubscriber redisSubscriber;
+    private final SensorHistoryService sensorHistoryService;
+    private final RecentReadingsStore recentReadingsStore;
+    private final SensorEventStream sensorEventStream;
+    private final SensorSnapshotService sensorSnapshotService;
+    private final SensorExportService sensorExportService;
+    private final ConcurrencyGuard exportGuard;
+    private final long longPollTimeoutMillis;
+    private final long exportTimeoutMillis;
+
+    public SensorDataController(
+        RedisSubscriber redisSubscriber,
+        SensorHistoryService sensorHistoryService,
+        RecentReadingsStore recentReadingsStore,
+        SensorEventStream sensorEventStream,
+        SensorSnapshotService sensorSnapshotService,
+        SensorExportService sensorExportService,
+        ConcurrencyGuards concurrencyGuards,
+        @Value("${sensor.snapshot.long-poll-timeout-ms:30000}") long longPollTimeoutMillis,
+        @Value("${sensor.export.timeout-ms:14400000}") long exportTimeoutMillis
+    ) {
+        this.redisSubscriber = redisSubscriber;
+        this.sensorHistoryService = sensorHistoryService;
+        this.recentReadingsStore = recentReadingsStore;
+        this.sensorEventStream = sensorEventStream;
+        this.sensorSnapshotService = sensorSnapshotService;
+        this.sensorExportService = sensorExportService;
+        this.exportGuard = concurrencyGuards.export();
+        this.longPollTimeoutMillis = longPollTimeoutMillis;
+        this.exportTimeoutMillis = exportTimeoutMillis;
+    }
+
+    // The unprefixed routes address the device this node is configured for (DEVICE_NAME)
+    private String deviceOrDefault(String device) {
+        return device != null ? device : redisSubscriber.getDefaultDevice();
+    }
 
-    @GetMapping("/data")
-    public String getAllSensorData() {
+    // The ETag follows the data version, Spring answers a matching If-None-Match with 304
+    @GetMapping({"/data", "/devices/{device}/data"})
+    public ResponseEntity<byte[]> getAllSensorData(@PathVariable(required = false) String device) {
+        return snapshotResponse(deviceOrDefault(device));
+    }
+
+    // Long-poll: waitFor is the X-Data-Version the client has, answered as soon as a newer one exists.
+    // On timeout the client gets 304 and simply asks again.
+    @GetMapping(path = {"/data", "/devices/{device}/data"}, params = "waitFor")
+    public DeferredResult<ResponseEntity<byte[]>> waitForSensorData(
+        @PathVariable(required = false) String device,
+        @RequestParam long waitFor
+    ) {
+        String deviceId = deviceOrDefault(device);
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(longPollTimeoutMillis);
+        CompletableFuture<Long> change = sensorSnapshotService.awaitChange(deviceId, waitFor);
+        result.onTimeout(() -> {
+            change.cancel(false);
+            result.setResult(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .header(VERSION_HEADER, Long.toString(sensorSnapshotService.getVersion(deviceId)))
+                .build());
+        });
+        change.thenRun(() -> result.setResult(snapshotResponse(deviceId)));
+        return result;
+    }
+
+    private ResponseEntity<byte[]> snapshotResponse(String device) {
+        Snapshot snapshot = sensorSnapshotService.getSnapshot(device, redisSubscriber::getAll);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(snapshot.etag())
+            .cacheControl(CacheControl.noCache())
+            .header(VERSION_HEADER, Long.toString(snapshot.version()))
+            .body(snapshot.json());
+    }
+
+    // Changed sensors of every device as "sensors" events; reconnects resume after Last-Event-ID
+    @GetMapping(path = "/data/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSensorData(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return sensorEventStream.subscribe(lastEventId);
+    }
+
+    @GetMapping({"/data/{type}", "/devices/{device}/data/{type}"})
+    public String getSensorData(@PathVariable(required = false) String device, @PathVariable String type) {
         try {
-            return objectMapper.writeValueAsString(RedisSubscriber.getAll());
+            SensorReading reading = redisSubscriber.getData(deviceOrDefault(device), type);
+            return objectMapper.writeValueAsString(reading != null ? reading : Map.of());
         } catch (Exception e) {
-            throw new SensorDataSerializationException("Failed to serialize sensor data", e);
+            throw new SensorDataSerializationException("Failed to serialize sensor data for type: " + type, e);
         }
     }
 
-    @GetMapping("/data/{type}")
-    public String getSensorData(@PathVariable String type) {
+    // from/to are epoch millis, step is the bucket width in millis
+    @GetMapping({"/data/{type}/history", "/devices/{device}/data/{type}/history"})
+    public ResponseEntity<?> getSensorHistory(
+        @PathVariable(required = false) String device,
+        @PathVariable String type,
+        @RequestParam(required = false) Long from,
+        @RequestParam(required = false) Long to,
+        @RequestParam(required = false) Long step
+    ) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_HISTORY_RANGE;
+        long bucket = step != null ? step : defaultStep(end - start);
+        String deviceId = deviceOrDefault(device);
+
         try {
-            return objectMapper.writeValueAsString(RedisSubscriber.getData(type));
-        } catch (Exception e) {
-            throw new SensorDataSerializationException("Failed to serialize sensor data for type: " + type, e);
+            return ResponseEntity.ok(Map.of(
+                "device", deviceId,
+                "type", type,
+                "from", start,
+                "to", end,
+                "step", bucket,
+                "buckets", sensorHistoryService.getHistory(deviceId, type, start, end, bucket)
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Raw readings of [from, to) as a download, written while the cursor advances; gzip-encoded on the fly
+    // when the client accepts it. The permit is taken here so a busy server answers 503 before streaming starts,
+    // and released by the body or, if the request ends before the body ever runs (timeout, disconnect), on completion.
+    // Only exports get the long request timeout (sensor.export.timeout-ms), every other async request keeps its own.
+    @GetMapping({"/data/{type}/export", "/devices/{device}/data/{type}/export"})
+    public ResponseEntity<StreamingResponseBody> exportSensorData(
+        @PathVariable(required = false) String device,
+        @PathVariable String type,
+        @RequestParam(required = false) Long from,
+        @RequestParam(required = false) Long to,
+        @RequestParam(defaultValue = "csv") String format,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+        HttpServletRequest request
+    ) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_HISTORY_RANGE;
+        String deviceId = deviceOrDefault(device);
+        Format exportFormat;
+        try {
+            exportFormat = Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return exportError(e.getMessage());
+        }
+        if (start >= end) {
+            return exportError("'from' must be before 'to'");
+        }
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+        Permit permit = exportGuard.acquire();
+        // Whoever claims the permit first releases it: the body when it runs, otherwise the completion callback
+        AtomicBoolean claimed = new AtomicBoolean();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_PERMIT_INTERCEPTOR,
+            new CallableProcessingInterceptor() {
+                @Override
+                public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                    // Runs before the async request starts, so the timeout still applies to it
+                    if (webRequest instanceof AsyncWebRequest asyncWebRequest) {
+                        asyncWebRequest.setTimeout(exportTimeoutMillis);
+                    }
+                }
+
+                @Override
+                public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                    if (claimed.compareAndSet(false, true)) {
+                        permit.close();
+                    }
+                }
+            });
+        StreamingResponseBody body = out -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try (permit) {
+                if (gzip) {
+                    // syncFlush so flushes by the exporter reach the client instead of waiting in the deflater
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024, true);
+                    sensorExportService.export(deviceId, type, start, end, exportFormat, compressed);
+                    compressed.finish();
+                } else {
+                    sensorExportService.export(deviceId, type, start, end, exportFormat, out);
+                }
+            }
+        };
+
+        String filename = deviceId + "-" + type + "-" + start + "-" + end + "." + exportFormat.extension();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(exportFormat.mediaType())
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    // Same {"error": ...} body as the other endpoints, written through the streaming return type
+    private ResponseEntity<StreamingResponseBody> exportError(String message) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Map.of("error", message));
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(out -> out.write(json));
+        } catch (JsonProcessingException e) {
+            throw new SensorDataSerializationException("Failed to serialize export error", e);
+        }
+    }
+
+    // Steps of a minute or more are rounded up to whole rollup buckets, so they can be served from the rollup tables
+    private static long defaultStep(long range) {
+        long step = Math.max(1000, range / DEFAULT_HISTORY_POINTS);
+        Resolution resolution = null;
+        for (Resolution candidate : Resolution.values()) {
+            if (candidate.millis() <= step) {
+                resolution = candidate;
+            }
+        }
+        return resolution == null ? step : Math.ceilDiv(step, resolution.millis()) * resolution.millis();
+    }
+
+    @GetMapping({"/data/{type}/recent", "/devices/{device}/data/{type}/recent"})
+    public ResponseEntity<?> getRecentSensorData(
+        @PathVariable(required = false) String device,
+        @PathVariable String type,
+        @RequestParam(defaultValue = "60") long seconds
+    ) {
+        if (seconds <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "'seconds' must be positive"));
         }
+        return ResponseEntity.ok(recentReadingsStore.getRecent(deviceOrDefault(device), type, seconds));
     }
 }
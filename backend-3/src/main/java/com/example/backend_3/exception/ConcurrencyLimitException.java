@@ -0,0 +1,11 @@
+package com.example.backend_3.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ConcurrencyLimitException extends RuntimeException {
+    public ConcurrencyLimitException(String resource) {
+        super("Too many concurrent " + resource + " requests, try again later");
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend_3.exception;
+
+public class DeviceNotFoundException extends RuntimeException {
+    public DeviceNotFoundException(String deviceId) {
+        super("Unknown device: " + deviceId);
+    }
+}
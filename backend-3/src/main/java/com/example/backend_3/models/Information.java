@@ -13,6 +13,9 @@ public class Information {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(unique = true)
+    private String deviceId;
+
     private String deviceClass;
     private String manufacturer;
     private String manufacturerUri;
@@ -0,0 +1,6 @@
+package com.example.backend_3.models;
+
+/**
+ * Column-oriented window of recent readings, oldest first.
+ */
+public record RecentReadings(String device, String type, long[] timestamps, double[] values) {}
@@ -4,6 +4,11 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_sensor_data_device_type_timestamp", columnList = "deviceId, sensorType, timestamp"),
+    // Retention deletes by age across all sensors
+    @Index(name = "idx_sensor_data_timestamp", columnList = "timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,10 +17,12 @@ public class SensorData {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    private String deviceId;
+
     private String sensorType;
 
     @Column(name = "data_value")  // ✅ đổi tên cột tránh từ khóa
     private Double value;
 
-    private Long timestamp;
+    private Long timestamp;  // epoch millis
 }
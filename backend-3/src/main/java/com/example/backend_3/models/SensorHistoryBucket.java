@@ -0,0 +1,6 @@
+package com.example.backend_3.models;
+
+/**
+ * Downsampled view of the readings of one sensor type within [start, start + step).
+ */
+public record SensorHistoryBucket(long start, long count, double min, double max, double avg, double last) {}
@@ -0,0 +1,6 @@
+package com.example.backend_3.models;
+
+/**
+ * Snapshot of what the backend knows about one sensor channel. Times are epoch millis.
+ */
+public record SensorInfo(String device, String type, long firstSeen, long lastSeen, long messageCount, double ratePerSecond) {}
@@ -0,0 +1,18 @@
+package com.example.backend_3.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A single normalized sensor sample as it flows through the ingestion pipeline.
+ * {@code timestamp} is always epoch milliseconds.
+ */
+@JsonIgnoreProperties({"deviceId", "sensorType"})
+public record SensorReading(String deviceId, String sensorType, double value, long timestamp) {
+
+    // Anything below this is treated as epoch seconds (1e11 ms is 1973, 1e11 s is year 5138)
+    private static final double SECONDS_THRESHOLD = 1e11;
+
+    public static long toEpochMillis(double timestamp) {
+        return timestamp < SECONDS_THRESHOLD ? Math.round(timestamp * 1000.0) : (long) timestamp;
+    }
+}
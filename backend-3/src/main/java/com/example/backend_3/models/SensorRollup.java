@@ -0,0 +1,42 @@
+package com.example.backend_3.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Columns shared by the rollup tables: count/min/max/sum/last of one sensor over
+ * [bucketStart, bucketStart + resolution). Rows are upserted by SensorRollupService.
+ */
+@MappedSuperclass
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public abstract class SensorRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String deviceId;
+
+    private String sensorType;
+
+    private Long bucketStart;  // epoch millis, aligned to the resolution
+
+    @Column(name = "sample_count")
+    private Long count;
+
+    @Column(name = "min_value")
+    private Double min;
+
+    @Column(name = "max_value")
+    private Double max;
+
+    @Column(name = "sum_value")
+    private Double sum;
+
+    @Column(name = "last_value")
+    private Double last;
+
+    @Column(name = "last_timestamp")
+    private Long lastTimestamp;  // epoch millis of last_value
+}
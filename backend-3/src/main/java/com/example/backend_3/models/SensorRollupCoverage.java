@@ -0,0 +1,19 @@
+package com.example.backend_3.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Single row (id 1) recording when rollups were first enabled: rollup buckets starting at or after
+ * coveredFrom hold every reading, older history only exists in SensorData.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorRollupCoverage {
+    @Id
+    private Integer id;
+
+    private Long coveredFrom;  // epoch millis
+}
@@ -0,0 +1,8 @@
+package com.example.backend_3.models;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_sensor_rollup_minute", columnNames = {"deviceId", "sensorType", "bucketStart"}))
+public class SensorRollupMinute extends SensorRollup {
+}
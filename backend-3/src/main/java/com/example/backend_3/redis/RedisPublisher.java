@@ -4,7 +4,6 @@ import com.example.backend_3.exception.RedisPublishException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 
 import redis.clients.jedis.Jedis;
 
@@ -12,14 +11,19 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Standalone publisher outside Spring, so no property injection:
+ * the Redis URL comes from the first argument, then the REDIS_URL environment variable.
+ * For high-rate load tests use the in-app load generator (simulator.load.enabled=true).
+ */
 public class RedisPublisher {
 
-  @Value("${REDIS_URL}")
-  private static String redisUrl;
+  private static final String DEFAULT_REDIS_URL = "redis://localhost:6379";
 
   private static final Logger logger = LoggerFactory.getLogger(RedisPublisher.class);
 
   public static void main(String[] args) {
+    String redisUrl = args.length > 0 ? args[0] : System.getenv().getOrDefault("REDIS_URL", DEFAULT_REDIS_URL);
     try (Jedis jedis = new Jedis(URI.create(redisUrl))) {
       ObjectMapper mapper = new ObjectMapper();
 
@@ -1,54 +1,219 @@
 package com.example.backend_3.redis;
 
-import com.example.backend_3.websocket.DataWebSocketHandler;
+import com.example.backend_3.models.SensorReading;
+import com.example.backend_3.service.RecentReadingsStore;
+import com.example.backend_3.service.SensorDataWriter;
+import com.example.backend_3.service.SensorRegistry;
+import com.example.backend_3.service.SensorRollupService;
+import com.example.backend_3.service.SensorSnapshotService;
+import com.example.backend_3.sse.SensorEventStream;
+import com.example.backend_3.websocket.WebSocketFanout;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class RedisSubscriber implements MessageListener {
 
+    // Many readings of one device in a single message, see SensorReadingParser.parseBatch
+    public static final String BATCH_CHANNEL = "sensors:batch";
+
     private static final Logger logger = LoggerFactory.getLogger(RedisSubscriber.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final byte[] BATCH_CHANNEL_BYTES = BATCH_CHANNEL.getBytes(StandardCharsets.UTF_8);
+    private static final String OTHER_DEVICES = "other";
+
+    // device -> sensor type -> latest reading
+    private final Map<String, Map<String, SensorReading>> latestByDevice = new ConcurrentHashMap<>();
+
+    private final SensorDataWriter sensorDataWriter;
+    private final RecentReadingsStore recentReadingsStore;
+    private final WebSocketFanout webSocketFanout;
+    private final SensorEventStream sensorEventStream;
+    private final SensorRegistry sensorRegistry;
+    private final SensorSnapshotService sensorSnapshotService;
+    private final SensorRollupService sensorRollupService;
+    private final SensorChannelCache channelCache;
+    private final String defaultDevice;
+
+    private final Timer parseLatency;
+    private final Counter parseFailures;
+    private final Timer ingestLag;
+
+    public RedisSubscriber(
+        SensorDataWriter sensorDataWriter,
+        RecentReadingsStore recentReadingsStore,
+        WebSocketFanout webSocketFanout,
+        SensorEventStream sensorEventStream,
+        SensorRegistry sensorRegistry,
+        SensorSnapshotService sensorSnapshotService,
+        SensorRollupService sensorRollupService,
+        MeterRegistry meterRegistry,
+        @Value("${DEVICE_NAME}") String defaultDevice,
+        @Value("${sensor.channel-cache.max-entries:10000}") int maxChannels,
+        @Value("${sensor.metrics.device-tags:0}") int maxDeviceTags
+    ) {
+        this.sensorDataWriter = sensorDataWriter;
+        this.recentReadingsStore = recentReadingsStore;
+        this.webSocketFanout = webSocketFanout;
+        this.sensorEventStream = sensorEventStream;
+        this.sensorRegistry = sensorRegistry;
+        this.sensorSnapshotService = sensorSnapshotService;
+        this.sensorRollupService = sensorRollupService;
+        this.defaultDevice = defaultDevice;
+        Set<String> taggedDevices = ConcurrentHashMap.newKeySet();
+        this.channelCache = new SensorChannelCache(maxChannels, defaultDevice, (device, type) ->
+            Counter.builder("sensor.messages.received")
+                .description("Sensor messages received from Redis")
+                .tag("device", deviceTag(taggedDevices, maxDeviceTags, device))
+                .tag("type", type)
+                .register(meterRegistry));
+
+        this.parseLatency = Timer.builder("sensor.parse.latency")
+            .description("Time to decode one sensor message")
+            .register(meterRegistry);
+        this.parseFailures = Counter.builder("sensor.parse.failures")
+            .description("Sensor messages that could not be decoded")
+            .register(meterRegistry);
+        this.ingestLag = Timer.builder("sensor.ingest.lag")
+            .description("Delay between the reading timestamp and its arrival at this node")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Only the first {@code maxDeviceTags} devices get a series of their own, the rest share {@value #OTHER_DEVICES},
+     * so a fleet of devices cannot multiply the received counters.
+     */
+    private static String deviceTag(Set<String> taggedDevices, int maxDeviceTags, String device) {
+        // Called by the channel cache under its insert lock, once per new channel
+        if (taggedDevices.contains(device) || (taggedDevices.size() < maxDeviceTags && taggedDevices.add(device))) {
+            return device;
+        }
+        return OTHER_DEVICES;
+    }
+
+    public String getDefaultDevice() {
+        return defaultDevice;
+    }
 
-    private static final Map<String, Map<String, Object>> latestDataMap = new ConcurrentHashMap<>();
+    public Map<String, SensorReading> getAll() {
+        return getAll(defaultDevice);
+    }
 
-    public static Map<String, Map<String, Object>> getAll() {
-        return latestDataMap;
+    public Map<String, SensorReading> getAll(String device) {
+        return latestByDevice.getOrDefault(device, Map.of());
     }
 
-    public static Map<String, Object> getData(String type) {
-        return latestDataMap.getOrDefault(type, Map.of());
+    public SensorReading getData(String device, String type) {
+        return getAll(device).get(type);
     }
 
     @Override
     public void onMessage(@NonNull Message message, @Nullable byte[] pattern) {
+        ingest(message.getChannel(), message.getBody());
+    }
+
+    /**
+     * Handles one message of a {@code sensor:*} or {@value #BATCH_CHANNEL} channel (or stream of that name).
+     */
+    public void ingest(byte[] source, byte[] body) {
+        if (Arrays.equals(source, BATCH_CHANNEL_BYTES)) {
+            onBatch(body);
+            return;
+        }
         try {
-            String channel = new String(message.getChannel());  // e.g., sensor:temperature
-            String sensorType = channel.replace("sensor:", "");
-            String json = new String(message.getBody());
+            // e.g., sensor:temperature (default device) or sensor:device-7:temperature
+            SensorChannel channel = channelCache.resolve(source);
+            String device = channel.device();
+            String sensorType = channel.type();
+            long receivedAt = System.currentTimeMillis();
+            channel.received().increment();
+            sensorRegistry.recordMessage(device, sensorType);
 
-            Map<String, Object> parsed = objectMapper.readValue(json, new TypeReference<>() {});
-            latestDataMap.put(sensorType, parsed);
+            long parseStart = System.nanoTime();
+            SensorReading reading = SensorReadingParser.parse(device, sensorType, body);
+            parseLatency.record(System.nanoTime() - parseStart, TimeUnit.NANOSECONDS);
+            if (reading == null) {
+                parseFailures.increment();
+                logger.warn("⚠️ Ignoring {} message without numeric value/timestamp", channel.topic());
+                return;
+            }
+            // The original JSON bytes are spliced into the WebSocket frame, binary records are re-encoded once
+            byte[] json = SensorBinaryFormat.isBinary(body) ? SensorReadingParser.encode(reading) : body;
+            accept(channel, reading, json, receivedAt);
 
-            // Push real-time to WebSocket
-            String payload = objectMapper.writeValueAsString(Map.of(sensorType, parsed));
-            DataWebSocketHandler.broadcast(payload);
+        } catch (JsonProcessingException e) {
+            parseFailures.increment();
+            logger.error("❌ Invalid JSON format received from Redis", e);
+        } catch (Exception e) {
+            logger.error("❌ RedisSubscriber error", e);
+        }
+    }
+
+    private void onBatch(byte[] body) {
+        try {
+            long receivedAt = System.currentTimeMillis();
+            long parseStart = System.nanoTime();
+            List<SensorReading> readings = SensorReadingParser.parseBatch(defaultDevice, body);
+            parseLatency.record(System.nanoTime() - parseStart, TimeUnit.NANOSECONDS);
+            if (readings == null) {
+                parseFailures.increment();
+                logger.warn("⚠️ Ignoring {} message that is not a batch object", BATCH_CHANNEL);
+                return;
+            }
+
+            for (SensorReading reading : readings) {
+                SensorChannel channel = channelCache.resolve(reading.deviceId(), reading.sensorType());
+                channel.received().increment();
+                sensorRegistry.recordMessage(reading.deviceId(), reading.sensorType());
+                accept(channel, reading, SensorReadingParser.encode(reading), receivedAt);
+            }
 
         } catch (JsonProcessingException e) {
+            parseFailures.increment();
             logger.error("❌ Invalid JSON format received from Redis", e);
         } catch (Exception e) {
             logger.error("❌ RedisSubscriber error", e);
         }
     }
+
+    private void accept(SensorChannel channel, SensorReading reading, byte[] body, long receivedAt) {
+        String device = channel.device();
+        String sensorType = channel.type();
+        ingestLag.record(Math.max(0, receivedAt - reading.timestamp()), TimeUnit.MILLISECONDS);
+
+        Map<String, SensorReading> latest = latestByDevice.get(device);
+        if (latest == null) {
+            latest = latestByDevice.computeIfAbsent(device, d -> new ConcurrentHashMap<>());
+        }
+        latest.put(sensorType, reading);
+        sensorSnapshotService.markChanged(device);
+        recentReadingsStore.record(device, sensorType, reading.timestamp(), reading.value());
+
+        // Persist asynchronously, never blocks the listener thread
+        sensorDataWriter.submit(reading);
+        sensorRollupService.record(reading);
+
+        // Push real-time to WebSocket (on this node or through the fan-out channel), SSE clients get it with the next merged event
+        byte[] binaryFrame = webSocketFanout.wantsBinary() ? channel.binaryFrame(reading) : null;
+        webSocketFanout.dispatch(device, channel.topic(), channel.frame(body), binaryFrame);
+        sensorEventStream.record(channel.topic(), body);
+    }
 }
@@ -0,0 +1,46 @@
+package com.example.backend_3.redis;
+
+import com.example.backend_3.models.SensorReading;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-layout alternative to the {@code {"value":..,"timestamp":..}} JSON message, 18 bytes big-endian:
+ * {@code [0xB5 magic][version 1][int64 timestamp epoch ms][float64 value]}.
+ * The magic byte can never start a JSON document, so both encodings may share a channel and
+ * are told apart per message. WebSocket clients that ask for {@code "format":"binary"} get
+ * {@code [u16 topic length][topic UTF-8][record]} frames.
+ */
+public final class SensorBinaryFormat {
+
+    public static final byte MAGIC = (byte) 0xB5;
+    public static final byte VERSION = 1;
+    public static final int LENGTH = 18;
+
+    private SensorBinaryFormat() {}
+
+    public static boolean isBinary(byte[] body) {
+        return body.length > 0 && body[0] == MAGIC;
+    }
+
+    /**
+     * @return the reading, or {@code null} for an unknown version or a truncated record
+     */
+    public static SensorReading decode(String device, String type, byte[] body) {
+        if (body.length < LENGTH || body[0] != MAGIC || body[1] != VERSION) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(body, 2, LENGTH - 2);
+        long timestamp = in.getLong();
+        double value = in.getDouble();
+        return Double.isNaN(value) ? null : new SensorReading(device, type, value, timestamp);
+    }
+
+    public static byte[] encode(double value, long timestamp) {
+        return write(ByteBuffer.allocate(LENGTH), value, timestamp).array();
+    }
+
+    static ByteBuffer write(ByteBuffer out, double value, long timestamp) {
+        return out.put(MAGIC).put(VERSION).putLong(timestamp).putDouble(value);
+    }
+}
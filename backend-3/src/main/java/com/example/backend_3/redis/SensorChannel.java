@@ -0,0 +1,75 @@
+package com.example.backend_3.redis;
+
+import com.example.backend_3.models.SensorReading;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.micrometer.core.instrument.Counter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Resolved view of a {@code sensor:<type>} or {@code sensor:<device>:<type>} channel.
+ * The JSON prefix of the WebSocket frame (and the topic header of the binary one) is encoded once here
+ * so each message only has to be spliced in between.
+ */
+public final class SensorChannel {
+
+    private final String device;
+    private final String type;
+    private final String topic;
+    private final byte[] framePrefix;
+    private final byte[] topicBytes;
+    private final Counter received;
+
+    SensorChannel(String device, String type, String topic, Counter received) {
+        this.device = device;
+        this.type = type;
+        this.topic = topic;
+        // Channel names come from publishers, so the topic is escaped like any JSON string
+        this.framePrefix = ("{\"" + String.valueOf(JsonStringEncoder.getInstance().quoteAsString(topic)) + "\":")
+            .getBytes(StandardCharsets.UTF_8);
+        this.topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        this.received = received;
+    }
+
+    public String device() {
+        return device;
+    }
+
+    public String type() {
+        return type;
+    }
+
+    /**
+     * Name clients subscribe to and frames are keyed by: the bare type for the default device,
+     * {@code <device>:<type>} otherwise.
+     */
+    public String topic() {
+        return topic;
+    }
+
+    public Counter received() {
+        return received;
+    }
+
+    /**
+     * Builds {@code {"<topic>":<body>}} from the original message bytes without re-encoding the body.
+     */
+    public byte[] frame(byte[] body) {
+        byte[] frame = new byte[framePrefix.length + body.length + 1];
+        System.arraycopy(framePrefix, 0, frame, 0, framePrefix.length);
+        System.arraycopy(body, 0, frame, framePrefix.length, body.length);
+        frame[frame.length - 1] = '}';
+        return frame;
+    }
+
+    /**
+     * Builds the {@code [u16 topic length][topic][record]} frame for binary WebSocket clients, see {@link SensorBinaryFormat}.
+     */
+    public byte[] binaryFrame(SensorReading reading) {
+        ByteBuffer frame = ByteBuffer.allocate(2 + topicBytes.length + SensorBinaryFormat.LENGTH)
+            .putShort((short) topicBytes.length)
+            .put(topicBytes);
+        return SensorBinaryFormat.write(frame, reading.value(), reading.timestamp()).array();
+    }
+}
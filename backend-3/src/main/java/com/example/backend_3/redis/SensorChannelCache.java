@@ -0,0 +1,111 @@
+package com.example.backend_3.redis;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+/**
+ * Maps raw channel bytes to their {@link SensorChannel} without decoding them into a String.
+ * Lookups are lock-free reads of an immutable open-addressing table; the rare insert of a new
+ * channel copies the table under a lock.
+ */
+public class SensorChannelCache {
+
+    private static final byte[] PREFIX = "sensor:".getBytes(StandardCharsets.UTF_8);
+    private static final String OVERFLOW_TAG = "other";
+
+    private final int maxEntries;
+    private final String defaultDevice;
+    private final BiFunction<String, String, Counter> receivedCounter;
+    private volatile Entry[] table = new Entry[64];
+    private int size;
+
+    /**
+     * @param defaultDevice   device that legacy {@code sensor:<type>} channels belong to
+     * @param receivedCounter creates the per-channel message counter from (device, type), called once per cached channel
+     */
+    public SensorChannelCache(int maxEntries, String defaultDevice, BiFunction<String, String, Counter> receivedCounter) {
+        this.maxEntries = maxEntries;
+        this.defaultDevice = defaultDevice;
+        this.receivedCounter = receivedCounter;
+    }
+
+    /**
+     * Same channel as {@code sensor:<device>:<type>}, for readings that arrive without a channel of their own.
+     */
+    public SensorChannel resolve(String device, String type) {
+        String name = device.equals(defaultDevice) ? type : device + ":" + type;
+        return resolve(("sensor:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public SensorChannel resolve(byte[] channel) {
+        int hash = Arrays.hashCode(channel);
+        hash ^= hash >>> 16;
+        Entry[] current = table;
+        for (int i = hash & (current.length - 1); current[i] != null; i = (i + 1) & (current.length - 1)) {
+            Entry e = current[i];
+            if (e.hash == hash && Arrays.equals(e.channel, channel)) {
+                return e.sensorChannel;
+            }
+        }
+        return insert(channel.clone(), hash);
+    }
+
+    private synchronized SensorChannel insert(byte[] channel, int hash) {
+        Entry[] current = table;
+        for (int i = hash & (current.length - 1); current[i] != null; i = (i + 1) & (current.length - 1)) {
+            Entry e = current[i];
+            if (e.hash == hash && Arrays.equals(e.channel, channel)) {
+                return e.sensorChannel;
+            }
+        }
+
+        if (size >= maxEntries) {
+            // Refuse to grow (or add meter tags) without bound on a flood of unique channel names
+            return create(channel, receivedCounter.apply(OVERFLOW_TAG, OVERFLOW_TAG));
+        }
+
+        SensorChannel sensorChannel = create(channel, null);
+
+        Entry[] next;
+        if (size + 1 > current.length / 2) {
+            next = new Entry[current.length * 2];
+            for (Entry e : current) {
+                if (e != null) {
+                    put(next, e);
+                }
+            }
+        } else {
+            next = current.clone();
+        }
+        put(next, new Entry(channel, hash, sensorChannel));
+        size++;
+        table = next;
+        return sensorChannel;
+    }
+
+    private static void put(Entry[] target, Entry entry) {
+        int i = entry.hash & (target.length - 1);
+        while (target[i] != null) {
+            i = (i + 1) & (target.length - 1);
+        }
+        target[i] = entry;
+    }
+
+    private SensorChannel create(byte[] channel, Counter counter) {
+        boolean prefixed = channel.length >= PREFIX.length
+            && Arrays.equals(channel, 0, PREFIX.length, PREFIX, 0, PREFIX.length);
+        int offset = prefixed ? PREFIX.length : 0;
+        String name = new String(channel, offset, channel.length - offset, StandardCharsets.UTF_8);
+
+        int separator = name.indexOf(':');
+        String device = separator < 0 ? defaultDevice : name.substring(0, separator);
+        String type = separator < 0 ? name : name.substring(separator + 1);
+        String topic = device.equals(defaultDevice) ? type : device + ":" + type;
+        return new SensorChannel(device, type, topic, counter != null ? counter : receivedCounter.apply(device, type));
+    }
+
+    private record Entry(byte[] channel, int hash, SensorChannel sensorChannel) {}
+}
@@ -0,0 +1,143 @@
+package com.example.backend_3.redis;
+
+import com.example.backend_3.models.SensorReading;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams {@code {"value":..,"timestamp":..}} straight from the message bytes into a {@link SensorReading}.
+ * Field names come back canonicalized from Jackson's symbol table, so matching them does not allocate.
+ * Batch messages ({@code {"device":..,"readings":[{"type":..,"value":..,"timestamp":..}]}}) are decoded the same way.
+ * Single readings may also arrive in {@link SensorBinaryFormat}, recognized by their first byte.
+ */
+public final class SensorReadingParser {
+
+    private static final String FIELD_VALUE = "value";
+    private static final String FIELD_TIMESTAMP = "timestamp";
+    private static final String FIELD_DEVICE = "device";
+    private static final String FIELD_READINGS = "readings";
+    private static final String FIELD_TYPE = "type";
+
+    private static final ObjectReader reader = new ObjectMapper().reader();
+
+    private SensorReadingParser() {}
+
+    /**
+     * @return the reading, or {@code null} when the payload is valid JSON but lacks a numeric value or timestamp
+     * @throws JsonParseException also when anything follows the object, the body is forwarded to clients as is
+     */
+    public static SensorReading parse(String device, String type, byte[] body) throws IOException {
+        if (SensorBinaryFormat.isBinary(body)) {
+            return SensorBinaryFormat.decode(device, type, body);
+        }
+        double value = Double.NaN;
+        double timestamp = Double.NaN;
+
+        try (JsonParser parser = reader.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (token.isNumeric() && FIELD_VALUE.equals(field)) {
+                    value = parser.getDoubleValue();
+                } else if (token.isNumeric() && FIELD_TIMESTAMP.equals(field)) {
+                    timestamp = parser.getDoubleValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            requireEnd(parser);
+        }
+
+        if (Double.isNaN(value) || Double.isNaN(timestamp)) {
+            return null;
+        }
+        return new SensorReading(device, type, value, SensorReading.toEpochMillis(timestamp));
+    }
+
+    /**
+     * Decodes a batch message. Entries without a type or numeric value/timestamp are left out,
+     * the number skipped is the difference to {@code readings.length}.
+     *
+     * @param defaultDevice used when the message has no {@code device} field
+     * @return the readings in message order, or {@code null} when the payload is not a batch object
+     */
+    public static List<SensorReading> parseBatch(String defaultDevice, byte[] body) throws IOException {
+        String device = defaultDevice;
+        List<String> types = new ArrayList<>();
+        List<double[]> values = new ArrayList<>();
+
+        try (JsonParser parser = reader.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_STRING && FIELD_DEVICE.equals(field)) {
+                    device = parser.getText();
+                } else if (token == JsonToken.START_ARRAY && FIELD_READINGS.equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readEntry(parser, types, values);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            requireEnd(parser);
+        }
+
+        // The device may follow the readings in the object, so readings are only built at the end
+        List<SensorReading> readings = new ArrayList<>(types.size());
+        for (int i = 0; i < types.size(); i++) {
+            double[] entry = values.get(i);
+            if (types.get(i) != null && !Double.isNaN(entry[0]) && !Double.isNaN(entry[1])) {
+                readings.add(new SensorReading(device, types.get(i), entry[0], SensorReading.toEpochMillis(entry[1])));
+            }
+        }
+        return readings;
+    }
+
+    private static void requireEnd(JsonParser parser) throws IOException {
+        if (parser.nextToken() != null) {
+            throw new JsonParseException(parser, "Unexpected content after the sensor message object");
+        }
+    }
+
+    private static void readEntry(JsonParser parser, List<String> types, List<double[]> values) throws IOException {
+        String type = null;
+        double[] entry = {Double.NaN, Double.NaN};
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING && FIELD_TYPE.equals(field)) {
+                type = parser.getText();
+            } else if (token.isNumeric() && FIELD_VALUE.equals(field)) {
+                entry[0] = parser.getDoubleValue();
+            } else if (token.isNumeric() && FIELD_TIMESTAMP.equals(field)) {
+                entry[1] = parser.getDoubleValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        types.add(type);
+        values.add(entry);
+    }
+
+    /**
+     * Encodes a reading the way sensors publish it, used where no original message bytes exist to splice.
+     */
+    public static byte[] encode(SensorReading reading) {
+        return ("{\"value\":" + reading.value() + ",\"timestamp\":" + reading.timestamp() + "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
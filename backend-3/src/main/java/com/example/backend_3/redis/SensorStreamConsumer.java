@@ -0,0 +1,310 @@
+package com.example.backend_3.redis;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo.XInfoGroup;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable alternative to the pub/sub subscription ({@code sensor.ingest.mode=stream}).
+ * Producers XADD {@code {"data": <message json>}} to streams named like the channels
+ * ({@code sensor:<type>}, {@code sensor:<device>:<type>}, {@value RedisSubscriber#BATCH_CHANNEL}).
+ * All nodes join one consumer group, so each entry is handled by one node; entries are
+ * acknowledged per batch after they were handed to {@link RedisSubscriber}, and on start the
+ * consumer first re-reads what it had been delivered but not acknowledged before a restart.
+ */
+@Component
+// Edge nodes (websocket.fanout.mode=edge) leave ingestion to the ingest node
+@ConditionalOnExpression("'${sensor.ingest.mode:pubsub}' == 'stream' and '${websocket.fanout.mode:local}' != 'edge'")
+public class SensorStreamConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorStreamConsumer.class);
+
+    public static final String DATA_FIELD = "data";
+    private static final byte[] DATA_FIELD_BYTES = DATA_FIELD.getBytes(StandardCharsets.UTF_8);
+    private static final String STREAM_PREFIX = "sensor:";
+
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisSubscriber redisSubscriber;
+    private final Consumer consumer;
+    private final String startId;
+    private final int batchSize;
+    private final long blockMillis;
+
+    private final Set<String> known = new LinkedHashSet<>();  // guarded by itself
+    private volatile byte[][] streams = new byte[0][];
+    private final AtomicLong lag = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter acknowledged;
+
+    private volatile boolean running;
+    private Thread reader;
+
+    public SensorStreamConsumer(
+        RedisConnectionFactory connectionFactory,
+        RedisSubscriber redisSubscriber,
+        MeterRegistry meterRegistry,
+        @Value("${sensor.stream.group:backend}") String group,
+        // Must stay the same across restarts of a node, otherwise its pending entries are orphaned
+        @Value("${sensor.stream.consumer:${HOSTNAME:backend-3}}") String consumerName,
+        // Where a newly created group starts in an existing stream: 0 = everything retained, $ = only new entries
+        @Value("${sensor.stream.start-id:0}") String startId,
+        @Value("${sensor.stream.batch-size:500}") int batchSize,
+        @Value("${sensor.stream.block-ms:2000}") long blockMillis
+    ) {
+        this.connectionFactory = connectionFactory;
+        this.redisSubscriber = redisSubscriber;
+        this.consumer = Consumer.from(group, consumerName);
+        this.startId = startId;
+        this.batchSize = batchSize;
+        this.blockMillis = blockMillis;
+
+        Gauge.builder("sensor.stream.lag", lag, AtomicLong::get)
+            .description("Entries in the sensor streams not yet delivered to the consumer group")
+            .tag("group", group)
+            .register(meterRegistry);
+        Gauge.builder("sensor.stream.pending", pending, AtomicLong::get)
+            .description("Entries delivered to this consumer but not acknowledged")
+            .tag("group", group)
+            .tag("consumer", consumerName)
+            .register(meterRegistry);
+        this.acknowledged = Counter.builder("sensor.stream.acknowledged")
+            .description("Stream entries processed and acknowledged by this consumer")
+            .tag("group", group)
+            .tag("consumer", consumerName)
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        discoverStreams();
+        running = true;
+        reader = Thread.ofPlatform().name("sensor-stream-reader").daemon().start(this::runLoop);
+        logger.info("✅ Reading sensor streams as {}/{} ({} streams)", consumer.getGroup(), consumer.getName(), streams.length);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (reader != null) {
+            reader.join(blockMillis + TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Picks up streams created since the last scan and refreshes the lag gauges.
+     */
+    @Scheduled(fixedDelayString = "${sensor.stream.discovery-interval-ms:10000}")
+    public void refresh() {
+        if (!running) {
+            return;
+        }
+        try {
+            discoverStreams();
+            updateLag();
+        } catch (DataAccessException e) {
+            logger.warn("⚠️ Sensor stream discovery failed: {}", e.getMessage());
+        }
+    }
+
+    private void discoverStreams() {
+        List<byte[]> found = new ArrayList<>();
+        try (RedisConnection connection = connectionFactory.getConnection();
+             Cursor<byte[]> keys = connection.keyCommands().scan(
+                 ScanOptions.scanOptions().match("sensor*").type(DataType.STREAM).count(1000).build())) {
+            while (keys.hasNext()) {
+                byte[] key = keys.next();
+                String name = new String(key, StandardCharsets.UTF_8);
+                if (!name.startsWith(STREAM_PREFIX) && !name.equals(RedisSubscriber.BATCH_CHANNEL)) {
+                    continue;
+                }
+                synchronized (known) {
+                    if (known.contains(name)) {
+                        continue;
+                    }
+                }
+                createGroup(connection, key);
+                found.add(key);
+            }
+        }
+        if (found.isEmpty()) {
+            return;
+        }
+        synchronized (known) {
+            List<byte[]> all = new ArrayList<>(Arrays.asList(streams));
+            for (byte[] key : found) {
+                if (known.add(new String(key, StandardCharsets.UTF_8))) {
+                    all.add(key);
+                }
+            }
+            streams = all.toArray(new byte[0][]);
+        }
+        logger.info("🆕 Consuming {} new sensor stream(s), {} in total", found.size(), streams.length);
+    }
+
+    private void createGroup(RedisConnection connection, byte[] key) {
+        try {
+            connection.streamCommands().xGroupCreate(key, consumer.getGroup(), ReadOffset.from(startId));
+        } catch (DataAccessException e) {
+            // BUSYGROUP: another node (or an earlier run) already created it, keep its offset
+            String reason = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (reason == null || !reason.startsWith("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    private void updateLag() {
+        byte[][] current = streams;
+        long totalLag = 0;
+        long totalPending = 0;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            for (byte[] key : current) {
+                for (XInfoGroup group : connection.streamCommands().xInfoGroups(key)) {
+                    // "lag" is reported by Redis 7+, older servers only expose pending counts
+                    if (consumer.getGroup().equals(group.groupName()) && group.getRaw().get("lag") instanceof Number n) {
+                        totalLag += n.longValue();
+                    }
+                }
+                PendingMessagesSummary summary = connection.streamCommands().xPending(key, consumer.getGroup());
+                if (summary != null) {
+                    totalPending += summary.getPendingMessagesPerConsumer().getOrDefault(consumer.getName(), 0L);
+                }
+            }
+        }
+        lag.set(totalLag);
+        pending.set(totalPending);
+    }
+
+    private void runLoop() {
+        RedisConnection connection = null;
+        // Entries delivered before a restart but never acknowledged come first
+        boolean replayPending = true;
+        while (running) {
+            try {
+                byte[][] keys = streams;
+                if (keys.length == 0) {
+                    Thread.sleep(blockMillis);
+                    continue;
+                }
+                if (connection == null) {
+                    // Own connection: XREADGROUP BLOCK would stall every other user of a shared one
+                    connection = connectionFactory.getConnection();
+                }
+
+                List<ByteRecord> records = read(connection, keys, replayPending);
+                if (records == null || records.isEmpty()) {
+                    replayPending = false;
+                    continue;
+                }
+                process(connection, records);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("❌ Sensor stream read failed, reconnecting", e);
+                closeQuietly(connection);
+                connection = null;
+                replayPending = true;
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        closeQuietly(connection);
+        logger.info("⏹️ Sensor stream reader stopped");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ByteRecord> read(RedisConnection connection, byte[][] keys, boolean replayPending) {
+        ReadOffset offset = replayPending ? ReadOffset.from("0") : ReadOffset.lastConsumed();
+        StreamOffset<byte[]>[] offsets = (StreamOffset<byte[]>[]) Array.newInstance(StreamOffset.class, keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            offsets[i] = StreamOffset.create(keys[i], offset);
+        }
+        StreamReadOptions options = StreamReadOptions.empty().count(batchSize);
+        if (!replayPending) {
+            options = options.block(Duration.ofMillis(blockMillis));
+        }
+        return connection.streamCommands().xReadGroup(consumer, options, offsets);
+    }
+
+    private void process(RedisConnection connection, List<ByteRecord> records) {
+        Map<ByteBuffer, List<RecordId>> ids = new LinkedHashMap<>();
+        for (ByteRecord record : records) {
+            byte[] stream = record.getStream();
+            byte[] body = dataField(record);
+            // Trimmed entries come back from the pending list without fields, they are only acknowledged
+            if (body != null) {
+                redisSubscriber.ingest(stream, body);
+            }
+            ids.computeIfAbsent(ByteBuffer.wrap(stream), k -> new ArrayList<>()).add(record.getId());
+        }
+        // One XACK per stream and batch
+        for (Map.Entry<ByteBuffer, List<RecordId>> entry : ids.entrySet()) {
+            List<RecordId> batch = entry.getValue();
+            connection.streamCommands().xAck(entry.getKey().array(), consumer.getGroup(), batch.toArray(new RecordId[0]));
+            acknowledged.increment(batch.size());
+        }
+    }
+
+    private static byte[] dataField(ByteRecord record) {
+        for (Map.Entry<byte[], byte[]> field : record.getValue().entrySet()) {
+            if (Arrays.equals(field.getKey(), DATA_FIELD_BYTES)) {
+                return field.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static void closeQuietly(RedisConnection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (RuntimeException e) {
+                logger.debug("Ignoring error while closing stream connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.exception.ConcurrencyLimitException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many callers use a backend at once. With virtual threads the number of blocked requests is
+ * no longer limited by the worker pool, so without this they would all queue inside the connection pool.
+ * Callers wait up to the acquire timeout and then fail fast with {@link ConcurrencyLimitException}.
+ */
+public class ConcurrencyGuard {
+
+    private final String name;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    public ConcurrencyGuard(String name, int maxConcurrent, long acquireTimeoutMillis) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * A held permit, released by the first {@link #close()}.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public <T> T call(Supplier<T> action) {
+        acquirePermit();
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * For work that continues on another thread, e.g. a streamed response body: the permit is taken
+     * here, on the request thread, and held until the returned handle is closed.
+     */
+    public Permit acquire() {
+        acquirePermit();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ConcurrencyLimitException(name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitException(name);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+}
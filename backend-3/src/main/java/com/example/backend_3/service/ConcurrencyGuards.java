@@ -0,0 +1,55 @@
+package com.example.backend_3.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The guards for the blocking backends used on request paths.
+ */
+@Component
+public class ConcurrencyGuards {
+
+    private final ConcurrencyGuard database;
+    private final ConcurrencyGuard redis;
+    private final ConcurrencyGuard export;
+
+    public ConcurrencyGuards(
+        MeterRegistry meterRegistry,
+        // Matches Hikari's default pool size, more would only wait for a connection
+        @Value("${concurrency.database.max-concurrent:10}") int databaseMaxConcurrent,
+        @Value("${concurrency.redis.max-concurrent:64}") int redisMaxConcurrent,
+        // Exports hold a database connection for as long as the download runs
+        @Value("${concurrency.export.max-concurrent:2}") int exportMaxConcurrent,
+        @Value("${concurrency.acquire-timeout-ms:2000}") long acquireTimeoutMillis
+    ) {
+        this.database = register(meterRegistry, new ConcurrencyGuard("database", databaseMaxConcurrent, acquireTimeoutMillis));
+        this.redis = register(meterRegistry, new ConcurrencyGuard("redis", redisMaxConcurrent, acquireTimeoutMillis));
+        this.export = register(meterRegistry, new ConcurrencyGuard("export", exportMaxConcurrent, acquireTimeoutMillis));
+    }
+
+    private static ConcurrencyGuard register(MeterRegistry registry, ConcurrencyGuard guard) {
+        Gauge.builder("concurrency.guard.waiting", guard, ConcurrencyGuard::getQueueLength)
+            .description("Callers waiting for a permit")
+            .tag("resource", guard.getName())
+            .register(registry);
+        Gauge.builder("concurrency.guard.available", guard, ConcurrencyGuard::getAvailablePermits)
+            .description("Free permits")
+            .tag("resource", guard.getName())
+            .register(registry);
+        return guard;
+    }
+
+    public ConcurrencyGuard database() {
+        return database;
+    }
+
+    public ConcurrencyGuard redis() {
+        return redis;
+    }
+
+    public ConcurrencyGuard export() {
+        return export;
+    }
+}
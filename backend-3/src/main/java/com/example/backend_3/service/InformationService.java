@@ -1,80 +1,288 @@
 package com.example.backend_3.service;
 
+import com.example.backend_3.exception.ConcurrencyLimitException;
+import com.example.backend_3.exception.DeviceNotFoundException;
+import com.example.backend_3.models.Information;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Device information is served from an in-process near-cache in front of Redis, in front of MySQL.
+ * Concurrent misses share a single load, and updates evict the near-cache on every node through
+ * the {@value #INVALIDATION_CHANNEL} pub/sub channel. Messages are {@code <node id> <redis key>}; the updating
+ * node skips its own, it has already refreshed its entry.
+ * Each device has its own row; the configured DEVICE_NAME also owns the legacy row without a deviceId.
+ */
 @Service
-public class InformationService {
+public class InformationService implements MessageListener {
+
+  public static final String INVALIDATION_CHANNEL = "information:invalidate";
+
+  private static final String SELECT_SQL = """
+      SELECT deviceClass, manufacturer, manufacturerUri, model,
+            productCode, hardwareRevision, softwareRevision, serialNumber,
+            productInstanceUri, webshopUri, sysDescr, sysName,
+            sysContact, sysLocation
+      FROM information
+  """;
+  private static final String DEVICE_FILTER = " WHERE deviceId = ?";
+  // Rows created before multi-device support have no deviceId, they belong to the default device
+  private static final String DEFAULT_DEVICE_FILTER = " WHERE deviceId = ? OR deviceId IS NULL ORDER BY deviceId IS NULL";
+
+  // Plain value columns of the entity; id, deviceId and the user relation are not client-editable
+  private static final Set<String> UPDATABLE_COLUMNS = Arrays.stream(Information.class.getDeclaredFields())
+    .filter(field -> !Modifier.isStatic(field.getModifiers()))
+    .filter(field -> !field.isAnnotationPresent(Id.class) && !field.isAnnotationPresent(ManyToOne.class))
+    .map(Field::getName)
+    .filter(name -> !name.equals("deviceId"))
+    .collect(Collectors.toUnmodifiableSet());
 
   private final StringRedisTemplate redisTemplate;
   private final JdbcTemplate jdbcTemplate;
+  private final ConcurrencyGuard databaseGuard;
+  private final ConcurrencyGuard redisGuard;
   private final ObjectMapper objectMapper = new ObjectMapper();
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(InformationService.class);
-  private final String redisKey;
+  private final String defaultDevice;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final long nearCacheTtlMillis;
+  private final Counter localHits;
+  private final Counter cacheHits;
+  private final Counter cacheMisses;
+
+  // Parsed information per Redis key; an incomplete future is a load in flight that callers join
+  private final Map<String, CompletableFuture<CachedInformation>> nearCache = new ConcurrentHashMap<>();
+
+  private record CachedInformation(Map<String, Object> value, long expiresAt) {}
 
   public InformationService(
     StringRedisTemplate redisTemplate,
     JdbcTemplate jdbcTemplate,
-    @Value("${DEVICE_NAME}") String serverUrl
+    ConcurrencyGuards concurrencyGuards,
+    MeterRegistry meterRegistry,
+    @Value("${DEVICE_NAME}") String defaultDevice,
+    // Safety net in case an invalidation message is missed while disconnected from Redis
+    @Value("${information.near-cache.ttl-ms:60000}") long nearCacheTtlMillis
   ) {
     this.redisTemplate = redisTemplate;
     this.jdbcTemplate = jdbcTemplate;
+    this.databaseGuard = concurrencyGuards.database();
+    this.redisGuard = concurrencyGuards.redis();
+    this.nearCacheTtlMillis = nearCacheTtlMillis;
+    this.localHits = Counter.builder("information.cache")
+      .description("Device information lookups by cache outcome")
+      .tag("result", "local_hit")
+      .register(meterRegistry);
+    this.cacheHits = Counter.builder("information.cache")
+      .description("Device information lookups by cache outcome")
+      .tag("result", "redis_hit")
+      .register(meterRegistry);
+    this.cacheMisses = Counter.builder("information.cache")
+      .description("Device information lookups by cache outcome")
+      .tag("result", "miss")
+      .register(meterRegistry);
+    this.defaultDevice = defaultDevice;
+    logger.info("✅ Default information device set to: {}", defaultDevice);
+  }
 
-    // Sử dụng base URL từ properties để đặt tên cache key
-    this.redisKey = "information:" + serverUrl;
-    logger.info("✅ Redis key set to: {}", this.redisKey);
+  private static String redisKey(String deviceId) {
+    return "information:" + deviceId;
+  }
+
+  private String deviceFilter(String deviceId) {
+    return deviceId.equals(defaultDevice) ? DEFAULT_DEVICE_FILTER : DEVICE_FILTER;
   }
 
   public Map<String, Object> getInformation() {
+    return getInformation(defaultDevice);
+  }
+
+  public Map<String, Object> getInformation(String deviceId) {
+    String redisKey = redisKey(deviceId);
+    while (true) {
+      CompletableFuture<CachedInformation> future = nearCache.get(redisKey);
+      boolean loadedHere = false;
+      if (future == null) {
+        CompletableFuture<CachedInformation> created = new CompletableFuture<>();
+        future = nearCache.putIfAbsent(redisKey, created);
+        if (future == null) {
+          load(deviceId, created);
+          future = created;
+          loadedHere = true;
+        }
+      }
+
+      CachedInformation cached;
+      try {
+        cached = future.join();
+      } catch (CompletionException e) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (loadedHere) {
+        return cached.value();
+      }
+      if (System.currentTimeMillis() < cached.expiresAt()) {
+        localHits.increment();
+        return cached.value();
+      }
+      nearCache.remove(redisKey, future);
+    }
+  }
+
+  /**
+   * Drops every near-cache entry of this node, the next read goes to Redis.
+   */
+  public void evictLocal() {
+    nearCache.clear();
+  }
+
+  @Override
+  public void onMessage(@NonNull Message message, @Nullable byte[] pattern) {
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    int separator = body.indexOf(' ');
+    if (separator >= 0 && body.substring(0, separator).equals(nodeId)) {
+      return;
+    }
+    String key = body.substring(separator + 1);
+    nearCache.remove(key);
+    logger.debug("Near-cache entry {} invalidated", key);
+  }
+
+  private void load(String deviceId, CompletableFuture<CachedInformation> target) {
+    try {
+      Map<String, Object> info = Collections.unmodifiableMap(new LinkedHashMap<>(loadFromRedisOrDatabase(deviceId)));
+      target.complete(new CachedInformation(info, System.currentTimeMillis() + nearCacheTtlMillis));
+    } catch (RuntimeException e) {
+      nearCache.remove(redisKey(deviceId), target);
+      target.completeExceptionally(e);
+    }
+  }
+
+  private Map<String, Object> queryInformation(String deviceId) {
+    try {
+      return databaseGuard.call(() -> jdbcTemplate.queryForMap(SELECT_SQL + deviceFilter(deviceId) + " LIMIT 1", deviceId));
+    } catch (EmptyResultDataAccessException e) {
+      throw new DeviceNotFoundException(deviceId);
+    }
+  }
+
+  private Map<String, Object> loadFromRedisOrDatabase(String deviceId) {
+    String redisKey = redisKey(deviceId);
     try {
       // 1️⃣ Lấy từ Redis nếu có
-      String cached = redisTemplate.opsForValue().get(redisKey);
+      String cached = redisGuard.call(() -> redisTemplate.opsForValue().get(redisKey));
       if (cached != null) {
+          cacheHits.increment();
           return objectMapper.readValue(cached, new TypeReference<>() {});
       }
 
       // 2️⃣ Nếu không có, lấy từ MySQL
-      Map<String, Object> info = jdbcTemplate.queryForMap("""
-          SELECT deviceClass, manufacturer, manufacturerUri, model,
-                productCode, hardwareRevision, softwareRevision, serialNumber,
-                productInstanceUri, webshopUri, sysDescr, sysName,
-                sysContact, sysLocation
-          FROM information
-          LIMIT 1
-      """);
+      cacheMisses.increment();
+      Map<String, Object> info = queryInformation(deviceId);
 
       // 3️⃣ Cache lại vào Redis
       String json = objectMapper.writeValueAsString(info);
-      redisTemplate.opsForValue().set(redisKey, json);
+      try {
+        redisGuard.run(() -> redisTemplate.opsForValue().set(redisKey, json));
+      } catch (ConcurrencyLimitException e) {
+        // The value is already loaded, the next miss caches it
+        logger.warn("⚠️ Not caching {} in Redis: {}", redisKey, e.getMessage());
+      }
 
       return info;
 
+    } catch (DeviceNotFoundException | ConcurrencyLimitException e) {
+      throw e;
     } catch (Exception e) {
       logger.error("❌ Failed to fetch system information", e);
       throw new RuntimeException("❌ Failed to fetch system information", e);
     }
   }
 
-  public void updateInformation(String key, Object value) {
-    try {
-        // 1️⃣ Cập nhật vào MySQL (giả định bảng 'information' chỉ có 1 dòng)
-        String sql = "UPDATE information SET " + key + " = ? LIMIT 1";
-        jdbcTemplate.update(sql, value);
+  /**
+   * Applies all fields in one UPDATE inside a transaction, then refreshes the caches once after commit.
+   * Only columns of the {@link Information} entity are accepted; anything else is rejected up front.
+   */
+  @Transactional
+  public void updateInformation(Map<String, Object> fields) {
+    // Self-invocation bypasses the proxy, so this entry point needs its own @Transactional
+    updateInformation(defaultDevice, fields);
+  }
+
+  @Transactional
+  public void updateInformation(String deviceId, Map<String, Object> fields) {
+    List<String> unknown = fields.keySet().stream().filter(key -> !UPDATABLE_COLUMNS.contains(key)).toList();
+    if (!unknown.isEmpty()) {
+      throw new IllegalArgumentException("Unknown information fields: " + unknown);
+    }
+
+    // 1️⃣ Cập nhật vào MySQL (một dòng cho mỗi thiết bị)
+    List<String> columns = List.copyOf(fields.keySet());
+    String sql = columns.stream()
+      .map(column -> column + " = ?")
+      .collect(Collectors.joining(", ", "UPDATE information SET ", deviceFilter(deviceId) + " LIMIT 1"));
+    Object[] args = Stream.concat(columns.stream().map(fields::get), Stream.of(deviceId)).toArray();
+    if (jdbcTemplate.update(sql, args) == 0) {
+      throw new DeviceNotFoundException(deviceId);
+    }
 
-        // 2️⃣ Xoá cache Redis để lần sau sẽ đọc lại DB mới
-        redisTemplate.delete(redisKey);
+    // 2️⃣ Làm mới cache một lần, chỉ sau khi commit thành công
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        refreshCache(deviceId);
+      }
+    });
 
-        logger.info("✅ Updated '{}' in MySQL with value '{}', cache cleared.", key, value);
+    logger.info("✅ Updated {} of {} in MySQL", columns, deviceId);
+  }
 
+  private void refreshCache(String deviceId) {
+    String redisKey = redisKey(deviceId);
+    try {
+      Map<String, Object> info = queryInformation(deviceId);
+      String json = objectMapper.writeValueAsString(info);
+      redisGuard.run(() -> redisTemplate.opsForValue().set(redisKey, json));
+      nearCache.put(redisKey, CompletableFuture.completedFuture(new CachedInformation(
+        Collections.unmodifiableMap(new LinkedHashMap<>(info)), System.currentTimeMillis() + nearCacheTtlMillis)));
     } catch (Exception e) {
-        logger.error("❌ Failed to update key: {}", key, e);
-        throw new RuntimeException("Failed to update key: " + key, e);
+      // Fall back to plain invalidation, the next read reloads from MySQL
+      logger.error("❌ Failed to refresh information cache, evicting instead", e);
+      redisTemplate.delete(redisKey);
+      nearCache.remove(redisKey);
     }
+    redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + " " + redisKey);
   }
 }
@@ -0,0 +1,132 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.Picture;
+import com.example.backend_3.repositories.PictureRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves pictures to file-backed resources once and keeps their validators (ETag, Last-Modified).
+ * Pictures packaged inside the jar are copied to a temp file on first use, so every response can be
+ * streamed from disk instead of being read into a byte array. Missing files are not remembered, a picture
+ * added later is served on the next request.
+ */
+@Service
+public class PictureService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureService.class);
+
+    public record StoredPicture(Resource resource, MediaType contentType, long length, long lastModified, String hash, String etag) {}
+
+    private final PictureRepository pictureRepository;
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final String defaultFilename;
+
+    private final Map<String, StoredPicture> pictures = new ConcurrentHashMap<>();
+
+    public PictureService(
+        PictureRepository pictureRepository,
+        ResourceLoader resourceLoader,
+        @Value("${picture.location:classpath:static/image/}") String location,
+        @Value("${picture.default-filename:device-3.jpg}") String defaultFilename
+    ) {
+        this.pictureRepository = pictureRepository;
+        this.resourceLoader = resourceLoader;
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.defaultFilename = defaultFilename;
+    }
+
+    public Optional<StoredPicture> getDefaultPicture() {
+        return resolve(defaultFilename, null);
+    }
+
+    public Optional<StoredPicture> getPicture(long id) {
+        return pictureRepository.findById(id).flatMap(picture -> resolve(picture.getFilename(), picture));
+    }
+
+    private Optional<StoredPicture> resolve(String filename, Picture metadata) {
+        if (!isPlainFilename(filename)) {
+            logger.warn("⚠️ Rejected picture filename: {}", filename);
+            return Optional.empty();
+        }
+        // computeIfAbsent stores nothing when materialize returns null, so only found pictures are cached
+        Optional<StoredPicture> stored = Optional.ofNullable(pictures.computeIfAbsent(filename, this::materialize));
+        if (metadata == null || metadata.getContentType() == null) {
+            return stored;
+        }
+        // The entity's content type wins over the one guessed from the file extension
+        return stored.map(picture -> new StoredPicture(picture.resource(), MediaType.parseMediaType(metadata.getContentType()),
+            picture.length(), picture.lastModified(), picture.hash(), picture.etag()));
+    }
+
+    private static boolean isPlainFilename(String filename) {
+        return filename != null && !filename.isBlank()
+            && !filename.contains("/") && !filename.contains("\\") && !filename.contains("..");
+    }
+
+    private StoredPicture materialize(String filename) {
+        Resource resource = resourceLoader.getResource(location + filename);
+        if (!resource.exists()) {
+            logger.warn("⚠️ Picture not found: {}{}", location, filename);
+            return null;
+        }
+        try {
+            long lastModified = resource.lastModified();
+            Resource file = resource.isFile() ? new FileSystemResource(resource.getFile()) : copyToTempFile(resource, filename);
+            long length = file.contentLength();
+            MediaType contentType = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+            String hash = contentHash(file);
+            logger.info("✅ Picture {} ready ({} bytes)", filename, length);
+            return new StoredPicture(file, contentType, length, lastModified, hash, "\"" + hash + "\"");
+        } catch (IOException e) {
+            throw new UncheckedIOException("❌ Failed to load picture " + filename, e);
+        }
+    }
+
+    // Truncated SHA-256 of the content, used as ETag and as the key of generated variants
+    private static String contentHash(Resource file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = file.getInputStream()) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    private static Resource copyToTempFile(Resource resource, String filename) throws IOException {
+        Path target = Files.createTempFile("picture-", "-" + filename);
+        target.toFile().deleteOnExit();
+        try (InputStream in = resource.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new FileSystemResource(target);
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.service.PictureService.StoredPicture;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Resized / re-encoded picture variants, generated once and kept in an on-disk cache.
+ * Files are named {@code <source hash>-w<width>.<format>}, so a changed source never hits a stale
+ * variant. The cache is bounded by total size and evicts the least recently served files first;
+ * concurrent requests for a missing variant share one generation.
+ */
+@Service
+public class PictureVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureVariantService.class);
+
+    private static final List<String> FORMATS = List.of("jpg", "png");
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final int maxWidth;
+    private final float jpegQuality;
+
+    // Cached file name -> size, in access order; guarded by itself
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Map<String, CompletableFuture<StoredPicture>> generating = new ConcurrentHashMap<>();
+
+    public PictureVariantService(
+        @Value("${picture.cache.dir:${java.io.tmpdir}/backend-3-pictures}") String cacheDir,
+        @Value("${picture.cache.max-bytes:104857600}") long maxBytes,
+        @Value("${picture.variant.max-width:2048}") int maxWidth,
+        @Value("${picture.variant.jpeg-quality:0.8}") float jpegQuality
+    ) {
+        this.cacheDir = Path.of(cacheDir);
+        this.maxBytes = maxBytes;
+        this.maxWidth = maxWidth;
+        this.jpegQuality = jpegQuality;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(cacheDir);
+        // Re-index what previous runs left behind, oldest first so they are evicted first
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            List<Path> existing = files.filter(Files::isRegularFile)
+                .sorted(Comparator.comparing(PictureVariantService::lastModifiedTime))
+                .toList();
+            synchronized (index) {
+                for (Path file : existing) {
+                    long size = Files.size(file);
+                    index.put(file.getFileName().toString(), size);
+                    totalBytes += size;
+                }
+                evictOverflow();
+            }
+        }
+        logger.info("✅ Picture variant cache at {} ({} files, {} bytes)", cacheDir, index.size(), totalBytes);
+    }
+
+    private static long lastModifiedTime(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the source itself when nothing would change, otherwise the cached variant (generating it if needed).
+     *
+     * @throws IllegalArgumentException for an unsupported format or a width outside 1..max-width
+     */
+    public StoredPicture getVariant(StoredPicture source, Integer width, String format) {
+        String sourceFormat = MediaType.IMAGE_PNG.equalsTypeAndSubtype(source.contentType()) ? "png" : "jpg";
+        String targetFormat = format == null ? sourceFormat : format.toLowerCase().replace("jpeg", "jpg");
+        if (!FORMATS.contains(targetFormat)) {
+            throw new IllegalArgumentException("Unsupported format '" + format + "', expected one of " + FORMATS);
+        }
+        if (width != null && (width < 1 || width > maxWidth)) {
+            throw new IllegalArgumentException("'w' must be between 1 and " + maxWidth);
+        }
+        if (width == null && targetFormat.equals(sourceFormat)) {
+            return source;
+        }
+
+        String key = source.hash() + "-w" + (width != null ? width : 0) + "." + targetFormat;
+        if (touch(key)) {
+            return stored(source, key, targetFormat);
+        }
+
+        CompletableFuture<StoredPicture> created = new CompletableFuture<>();
+        CompletableFuture<StoredPicture> inFlight = generating.putIfAbsent(key, created);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw (RuntimeException) e.getCause();
+            }
+        }
+        try {
+            if (!touch(key)) {
+                long size = generate(source, width, targetFormat, cacheDir.resolve(key));
+                add(key, size);
+                logger.info("🆕 Generated picture variant {} ({} bytes)", key, size);
+            }
+            StoredPicture variant = stored(source, key, targetFormat);
+            created.complete(variant);
+            return variant;
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("❌ Failed to generate picture variant " + key, e);
+            created.completeExceptionally(failure);
+            throw failure;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            generating.remove(key, created);
+        }
+    }
+
+    private StoredPicture stored(StoredPicture source, String key, String format) {
+        Path file = cacheDir.resolve(key);
+        MediaType contentType = format.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+        return new StoredPicture(new FileSystemResource(file), contentType, file.toFile().length(),
+            source.lastModified(), source.hash(), "\"" + key + "\"");
+    }
+
+    // Marks the variant as recently used; false when it is not cached (or was removed from disk)
+    private boolean touch(String key) {
+        synchronized (index) {
+            Long size = index.get(key);
+            if (size == null) {
+                return false;
+            }
+            if (Files.isRegularFile(cacheDir.resolve(key))) {
+                return true;
+            }
+            index.remove(key);
+            totalBytes -= size;
+            return false;
+        }
+    }
+
+    private void add(String key, long size) {
+        synchronized (index) {
+            Long previous = index.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            evictOverflow();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+        // Always keep the most recent entry, even when it alone exceeds the limit
+        while (totalBytes > maxBytes && index.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            try {
+                Files.deleteIfExists(cacheDir.resolve(entry.getKey()));
+            } catch (IOException e) {
+                logger.warn("⚠️ Failed to delete cached picture variant {}", entry.getKey(), e);
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private long generate(StoredPicture source, Integer width, String format, Path target) throws IOException {
+        BufferedImage image;
+        try (InputStream in = source.resource().getInputStream()) {
+            image = ImageIO.read(in);
+        }
+        if (image == null) {
+            throw new IOException("Unreadable image");
+        }
+
+        int targetWidth = width == null ? image.getWidth() : Math.min(width, image.getWidth());
+        int targetHeight = Math.max(1, Math.round((float) image.getHeight() * targetWidth / image.getWidth()));
+        BufferedImage resized = resize(image, targetWidth, targetHeight, format.equals("png"));
+
+        // Write next to the target and move it in place, so readers never see a partial file
+        Path tmp = Files.createTempFile(cacheDir, ".variant-", ".tmp");
+        try {
+            write(resized, format, tmp);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return Files.size(target);
+    }
+
+    // Halves the size step by step before the final bilinear pass, which keeps large downscales sharp
+    private static BufferedImage resize(BufferedImage image, int width, int height, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format.equals("jpg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.RecentReadings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last {@code sensor.recent.capacity} readings of every device's sensor types in memory,
+ * so short "last N seconds" windows never touch the database.
+ */
+@Service
+public class RecentReadingsStore {
+
+    private final Map<String, Map<String, SensorRingBuffer>> buffers = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    public RecentReadingsStore(@Value("${sensor.recent.capacity:3600}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void record(String device, String type, long timestamp, double value) {
+        buffers.computeIfAbsent(device, d -> new ConcurrentHashMap<>())
+            .computeIfAbsent(type, t -> new SensorRingBuffer(device, t, capacity))
+            .add(timestamp, value);
+    }
+
+    public RecentReadings getRecent(String device, String type, long seconds) {
+        SensorRingBuffer buffer = buffers.getOrDefault(device, Map.of()).get(type);
+        if (buffer == null) {
+            return new RecentReadings(device, type, new long[0], new double[0]);
+        }
+        return buffer.since(System.currentTimeMillis() - seconds * 1000);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.backend_3.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prunes SensorData rows older than {@code sensor.retention.raw-days}; the rollup tables keep
+ * the aggregates. Rows go in batches of {@code batch-size} with a pause in between, so a large
+ * backlog never holds long locks or one huge transaction. It runs on its own thread: the pauses
+ * would otherwise hold up every @Scheduled job on Spring's single scheduler thread.
+ */
+@Service
+public class SensorDataRetention {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorDataRetention.class);
+
+    private static final String DELETE_SQL = "DELETE FROM SensorData WHERE timestamp < ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retentionMillis;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final long initialDelayMillis;
+    private final long intervalMillis;
+    private final Counter deleted;
+    private ScheduledExecutorService executor;
+
+    public SensorDataRetention(
+        JdbcTemplate jdbcTemplate,
+        MeterRegistry meterRegistry,
+        // 0 keeps raw rows forever
+        @Value("${sensor.retention.raw-days:30}") int retentionDays,
+        @Value("${sensor.retention.batch-size:5000}") int batchSize,
+        @Value("${sensor.retention.pause-ms:200}") long pauseMillis,
+        @Value("${sensor.retention.initial-delay-ms:60000}") long initialDelayMillis,
+        @Value("${sensor.retention.interval-ms:3600000}") long intervalMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.initialDelayMillis = initialDelayMillis;
+        this.intervalMillis = intervalMillis;
+        this.deleted = Counter.builder("sensor.retention.deleted")
+            .description("Raw sensor rows removed by retention")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (retentionMillis <= 0) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("sensor-retention").daemon().factory());
+        executor.scheduleWithFixedDelay(this::prune, initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public void prune() {
+        if (retentionMillis <= 0) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        long total = 0;
+        try {
+            int removed;
+            do {
+                removed = jdbcTemplate.update(DELETE_SQL, cutoff, batchSize);
+                total += removed;
+                deleted.increment(removed);
+                if (removed == batchSize) {
+                    Thread.sleep(pauseMillis);
+                }
+            } while (removed == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // Not rethrown, that would cancel the following runs
+            logger.error("❌ Sensor data retention failed after {} rows", total, e);
+            return;
+        }
+        if (total > 0) {
+            logger.info("🧹 Pruned {} sensor rows older than {} days", total, TimeUnit.MILLISECONDS.toDays(retentionMillis));
+        }
+    }
+}
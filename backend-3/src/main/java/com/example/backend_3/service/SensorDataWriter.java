@@ -0,0 +1,199 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorReading;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence for sensor readings.
+ * The Redis listener only enqueues; a dedicated thread flushes to SensorData in JDBC batches
+ * once the batch is full or the flush interval has elapsed. When the queue is full the
+ * reading is dropped and counted instead of blocking the caller.
+ */
+@Service
+public class SensorDataWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorDataWriter.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO SensorData (deviceId, sensorType, data_value, timestamp) VALUES (?, ?, ?, ?)";
+    private static final long DROP_LOG_EVERY = 10_000;
+    // Longest the flusher waits before checking running again, stop() never interrupts it
+    private static final long STOP_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<SensorReading> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public SensorDataWriter(
+        JdbcTemplate jdbcTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${sensor.ingest.queue-capacity:50000}") int queueCapacity,
+        @Value("${sensor.ingest.batch-size:500}") int batchSize,
+        @Value("${sensor.ingest.flush-interval-ms:1000}") long flushIntervalMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+        Gauge.builder("sensor.writer.queue.size", queue, BlockingQueue::size)
+            .description("Readings waiting to be persisted")
+            .register(meterRegistry);
+        registerCounter(meterRegistry, "accepted", accepted);
+        registerCounter(meterRegistry, "dropped", dropped);
+        registerCounter(meterRegistry, "written", written);
+        registerCounter(meterRegistry, "failed", failed);
+    }
+
+    private static void registerCounter(MeterRegistry registry, String outcome, AtomicLong value) {
+        FunctionCounter.builder("sensor.writer.readings", value, AtomicLong::get)
+            .description("Readings handled by the write-behind buffer")
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("sensor-data-writer").daemon().start(this::runLoop);
+        logger.info("✅ SensorDataWriter started (batchSize={}, flushInterval={}ms)",
+            batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // No interrupt: it would also abort a JDBC batch in progress and the final drain
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Never blocks: returns false and counts the reading as dropped when the buffer is full.
+     */
+    public boolean submit(SensorReading reading) {
+        if (queue.offer(reading)) {
+            accepted.incrementAndGet();
+            return true;
+        }
+        long total = dropped.incrementAndGet();
+        if (total == 1 || total % DROP_LOG_EVERY == 0) {
+            logger.warn("⚠️ Sensor write buffer full, {} readings dropped so far", total);
+        }
+        return false;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private void runLoop() {
+        List<SensorReading> batch = new ArrayList<>(batchSize);
+        boolean interrupted = false;
+        try {
+            while (running) {
+                if (fillBatch(batch)) {
+                    flush(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+
+        // Readings already taken from the queue first, then whatever is left, so a clean shutdown loses nothing
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+        logger.info("⏹️ SensorDataWriter stopped (written={}, dropped={}, failed={})",
+            written.get(), dropped.get(), failed.get());
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean fillBatch(List<SensorReading> batch) throws InterruptedException {
+        SensorReading first = queue.poll(STOP_CHECK_NANOS, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize && running) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize) {
+                break;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            SensorReading next = queue.poll(Math.min(remaining, STOP_CHECK_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+        return true;
+    }
+
+    private void flush(List<SensorReading> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, reading) -> {
+                ps.setString(1, reading.deviceId());
+                ps.setString(2, reading.sensorType());
+                ps.setDouble(3, reading.value());
+                ps.setLong(4, reading.timestamp());
+            });
+            written.addAndGet(batch.size());
+        } catch (DataAccessException e) {
+            failed.addAndGet(batch.size());
+            logger.error("❌ Failed to persist batch of {} sensor readings", batch.size(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+}
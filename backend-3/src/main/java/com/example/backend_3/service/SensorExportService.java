@@ -0,0 +1,198 @@
+package com.example.backend_3.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the raw readings of a range straight from a forward-only cursor to the response stream,
+ * one line per row, so heap use does not depend on the number of rows exported.
+ */
+@Service
+public class SensorExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorExportService.class);
+
+    private static final String EXPORT_SQL = """
+        SELECT timestamp, data_value
+        FROM SensorData
+        WHERE deviceId = ? AND sensorType = ? AND timestamp >= ? AND timestamp < ?
+        ORDER BY timestamp
+    """;
+
+    public enum Format {
+        CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)),
+        NDJSON("ndjson", new MediaType("application", "x-ndjson", StandardCharsets.UTF_8));
+
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported format '" + value + "', use csv or ndjson");
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+    private final long stallTimeoutMillis;
+    private final Counter rowsExported;
+
+    public SensorExportService(
+        JdbcTemplate jdbcTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${sensor.export.fetch-size:5000}") int fetchSize,
+        @Value("${sensor.export.stall-timeout-ms:30000}") long stallTimeoutMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+        this.stallTimeoutMillis = stallTimeoutMillis;
+        this.rowsExported = Counter.builder("sensor.export.rows")
+            .description("Sensor rows written by exports")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Streams the readings in [from, to) to {@code out}, which is flushed but not closed.
+     *
+     * @return the number of rows written
+     * @throws IOException when the client goes away or stops reading for longer than the stall timeout;
+     *                     the cursor is closed before this is thrown
+     */
+    public long export(String device, String sensorType, long from, long to, Format format, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new StallGuard(out, stallTimeoutMillis), StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            writer.write("timestamp,value\n");
+        }
+        // Commits the headers, the client sees the download start before the query returns its first rows
+        writer.flush();
+
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                        EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    ps.setString(1, device);
+                    ps.setString(2, sensorType);
+                    ps.setLong(3, from);
+                    ps.setLong(4, to);
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> {
+                    try {
+                        writeRow(writer, format, rs.getLong(1), rs.getDouble(2));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                }
+            );
+        } catch (UncheckedIOException e) {
+            rowsExported.increment(rows[0]);
+            logger.warn("⚠️ Export of {}/{} aborted after {} rows: {}", device, sensorType, rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        writer.flush();
+        rowsExported.increment(rows[0]);
+        logger.info("📤 Exported {} {}/{} rows as {} in {} ms", rows[0], device, sensorType, format.extension(),
+            (System.nanoTime() - started) / 1_000_000);
+        return rows[0];
+    }
+
+    private static void writeRow(Writer writer, Format format, long timestamp, double value) throws IOException {
+        if (format == Format.CSV) {
+            writer.write(Long.toString(timestamp));
+            writer.write(',');
+            writer.write(Double.toString(value));
+        } else {
+            writer.write("{\"timestamp\":");
+            writer.write(Long.toString(timestamp));
+            writer.write(",\"value\":");
+            // JSON has no NaN/Infinity literals
+            writer.write(Double.isFinite(value) ? Double.toString(value) : "null");
+            writer.write('}');
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Fails the export once a single write to the client was blocked longer than the stall timeout (0 = never).
+     * A client that stopped reading would otherwise keep the cursor, its pooled connection and an export permit
+     * until the request times out; one that never reads again is cut off by the connector's write timeout.
+     */
+    private static final class StallGuard extends FilterOutputStream {
+
+        private final long stallTimeoutNanos;
+
+        StallGuard(OutputStream out, long stallTimeoutMillis) {
+            super(out);
+            this.stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long started = System.nanoTime();
+            out.write(b);
+            check(started);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long started = System.nanoTime();
+            out.write(b, off, len);
+            check(started);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long started = System.nanoTime();
+            out.flush();
+            check(started);
+        }
+
+        private void check(long started) throws IOException {
+            long blocked = System.nanoTime() - started;
+            if (stallTimeoutNanos > 0 && blocked > stallTimeoutNanos) {
+                throw new IOException("Client stopped reading for " + TimeUnit.NANOSECONDS.toMillis(blocked) + " ms");
+            }
+        }
+    }
+}
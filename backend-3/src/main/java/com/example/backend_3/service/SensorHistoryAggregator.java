@@ -0,0 +1,65 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorHistoryBucket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Folds time-ordered readings into epoch-aligned buckets of {@code step} millis.
+ * Only the bucket currently being filled is held open, so memory depends on the
+ * number of buckets returned and not on the number of rows scanned.
+ */
+class SensorHistoryAggregator {
+
+    private final long step;
+    private final List<SensorHistoryBucket> buckets = new ArrayList<>();
+
+    private long bucketStart = Long.MIN_VALUE;
+    private long count;
+    private double min;
+    private double max;
+    private double sum;
+    private double last;
+
+    SensorHistoryAggregator(long step) {
+        this.step = step;
+    }
+
+    void add(long timestamp, double value) {
+        add(timestamp, 1, value, value, value, value);
+    }
+
+    /**
+     * Merges a pre-aggregated group of readings that all fall at or after {@code timestamp}.
+     * Callers must feed groups in ascending timestamp order.
+     */
+    void add(long timestamp, long groupCount, double groupMin, double groupMax, double groupSum, double groupLast) {
+        long start = Math.floorDiv(timestamp, step) * step;
+        if (start != bucketStart) {
+            emit();
+            bucketStart = start;
+            min = groupMin;
+            max = groupMax;
+        } else {
+            min = Math.min(min, groupMin);
+            max = Math.max(max, groupMax);
+        }
+        count += groupCount;
+        sum += groupSum;
+        last = groupLast;
+    }
+
+    List<SensorHistoryBucket> finish() {
+        emit();
+        return buckets;
+    }
+
+    private void emit() {
+        if (count > 0) {
+            buckets.add(new SensorHistoryBucket(bucketStart, count, min, max, sum / count, last));
+        }
+        count = 0;
+        sum = 0;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorHistoryBucket;
+import com.example.backend_3.service.SensorRollupService.Resolution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+@Service
+public class SensorHistoryService {
+
+    private static final String HISTORY_SQL = """
+        SELECT timestamp, data_value
+        FROM SensorData
+        WHERE deviceId = ? AND sensorType = ? AND timestamp >= ? AND timestamp < ?
+        ORDER BY timestamp
+    """;
+
+    // %s is the rollup table of the chosen resolution
+    private static final String ROLLUP_SQL = """
+        SELECT bucketStart, sample_count, min_value, max_value, sum_value, last_value
+        FROM %s
+        WHERE deviceId = ? AND sensorType = ? AND bucketStart >= ? AND bucketStart < ?
+        ORDER BY bucketStart
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrencyGuard databaseGuard;
+    private final SensorRollupService rollupService;
+    private final int fetchSize;
+    private final int maxBuckets;
+
+    public SensorHistoryService(
+        JdbcTemplate jdbcTemplate,
+        ConcurrencyGuards concurrencyGuards,
+        SensorRollupService rollupService,
+        @Value("${sensor.history.fetch-size:1000}") int fetchSize,
+        @Value("${sensor.history.max-buckets:5000}") int maxBuckets
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseGuard = concurrencyGuards.database();
+        this.rollupService = rollupService;
+        this.fetchSize = fetchSize;
+        this.maxBuckets = maxBuckets;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    /**
+     * Aggregates the range from the coarsest rollup table whose buckets tile {@code step}, with whole
+     * steps at the edges, and from raw rows for steps the rollups do not cover: those before rollups were
+     * enabled and those not flushed yet. Steps that are not a multiple of a minute always come from raw rows.
+     * Rows are streamed through a forward-only cursor.
+     */
+    public List<SensorHistoryBucket> getHistory(String device, String sensorType, long from, long to, long step) {
+        if (from >= to) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (step <= 0) {
+            throw new IllegalArgumentException("'step' must be positive");
+        }
+        if ((to - from) / step > maxBuckets) {
+            throw new IllegalArgumentException("Range too large for step, at most " + maxBuckets + " buckets allowed");
+        }
+
+        SensorHistoryAggregator aggregator = new SensorHistoryAggregator(step);
+        Resolution resolution = rollupService.isEnabled() ? Resolution.coarsestFor(step) : null;
+        long coveredFrom = rollupService.getCoveredFrom();
+        if (resolution != null && coveredFrom != Long.MAX_VALUE) {
+            // The step holding coveredFrom may be missing readings from before rollups started
+            long rollupFrom = Math.max(Math.floorDiv(from, step) * step, Math.ceilDiv(coveredFrom, step) * step);
+            long complete = Math.floorDiv(System.currentTimeMillis() - rollupService.getLagMillis(), step) * step;
+            long rollupTo = Math.min(Math.floorDiv(to - 1, step) * step + step, complete);
+            if (rollupFrom < rollupTo) {
+                // Buckets are epoch-aligned and step is a multiple of the resolution, so the sources meet on step boundaries
+                queryRaw(aggregator, device, sensorType, from, rollupFrom);
+                databaseGuard.run(() -> query(String.format(ROLLUP_SQL, resolution.table()), device, sensorType, rollupFrom, rollupTo,
+                    rs -> aggregator.add(rs.getLong(1), rs.getLong(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6))));
+                queryRaw(aggregator, device, sensorType, rollupTo, to);
+                return aggregator.finish();
+            }
+        }
+        queryRaw(aggregator, device, sensorType, from, to);
+        return aggregator.finish();
+    }
+
+    private void queryRaw(SensorHistoryAggregator aggregator, String device, String sensorType, long from, long to) {
+        if (from < to) {
+            databaseGuard.run(() -> query(HISTORY_SQL, device, sensorType, from, to,
+                rs -> aggregator.add(rs.getLong(1), rs.getDouble(2))));
+        }
+    }
+
+    private void query(String sql, String device, String sensorType, long from, long to, RowCallbackHandler handler) {
+        jdbcTemplate.query(
+            con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setString(1, device);
+                ps.setString(2, sensorType);
+                ps.setLong(3, from);
+                ps.setLong(4, to);
+                return ps;
+            },
+            handler
+        );
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorInfo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Devices and their sensor types are discovered from the channels they publish on;
+ * nothing has to be declared up front.
+ */
+@Service
+public class SensorRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorRegistry.class);
+    private static final long RATE_INTERVAL_MS = 5000;
+
+    // device -> sensor type -> stats
+    private final Map<String, Map<String, Stats>> sensors = new ConcurrentHashMap<>();
+
+    public SensorRegistry(MeterRegistry meterRegistry) {
+        // Observes the map rather than this, so no reference to a half-built registry escapes
+        Gauge.builder("sensor.types", sensors, SensorRegistry::countSensors)
+            .description("Distinct device sensor channels seen since startup")
+            .register(meterRegistry);
+    }
+
+    public void recordMessage(String device, String type) {
+        long now = System.currentTimeMillis();
+        Map<String, Stats> deviceSensors = sensors.get(device);
+        if (deviceSensors == null) {
+            deviceSensors = sensors.computeIfAbsent(device, d -> new ConcurrentHashMap<>());
+        }
+        Stats stats = deviceSensors.get(type);
+        if (stats == null) {
+            stats = deviceSensors.computeIfAbsent(type, t -> {
+                logger.info("🆕 Discovered sensor type: {} on device {}", t, device);
+                return new Stats(now);
+            });
+        }
+        stats.count.increment();
+        stats.lastSeen = now;
+    }
+
+    public List<SensorInfo> getSensors() {
+        return sensors.entrySet().stream()
+            .flatMap(device -> device.getValue().entrySet().stream()
+                .map(e -> e.getValue().toInfo(device.getKey(), e.getKey())))
+            .sorted(Comparator.comparing(SensorInfo::device).thenComparing(SensorInfo::type))
+            .toList();
+    }
+
+    public List<SensorInfo> getSensors(String device) {
+        return sensors.getOrDefault(device, Map.of()).entrySet().stream()
+            .map(e -> e.getValue().toInfo(device, e.getKey()))
+            .sorted(Comparator.comparing(SensorInfo::type))
+            .toList();
+    }
+
+    public List<String> getDevices() {
+        return sensors.keySet().stream().sorted().toList();
+    }
+
+    public int getSensorCount() {
+        return countSensors(sensors);
+    }
+
+    private static int countSensors(Map<String, Map<String, Stats>> sensors) {
+        return sensors.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @Scheduled(fixedRate = RATE_INTERVAL_MS)
+    public void updateRates() {
+        long now = System.currentTimeMillis();
+        sensors.values().forEach(deviceSensors -> deviceSensors.values().forEach(stats -> stats.updateRate(now)));
+    }
+
+    private static final class Stats {
+        private final long firstSeen;
+        private final LongAdder count = new LongAdder();
+        private volatile long lastSeen;
+        private volatile double rate;
+
+        // Only touched by the scheduler thread
+        private long lastCount;
+        private long lastRateUpdate;
+
+        Stats(long now) {
+            this.firstSeen = now;
+            this.lastSeen = now;
+            this.lastRateUpdate = now;
+        }
+
+        void updateRate(long now) {
+            long elapsed = now - lastRateUpdate;
+            if (elapsed <= 0) {
+                return;
+            }
+            long total = count.sum();
+            rate = (total - lastCount) * 1000.0 / elapsed;
+            lastCount = total;
+            lastRateUpdate = now;
+        }
+
+        SensorInfo toInfo(String device, String type) {
+            return new SensorInfo(device, type, firstSeen, lastSeen, count.sum(), rate);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.RecentReadings;
+
+/**
+ * Fixed-capacity circular buffer of (timestamp, value) pairs kept in primitive arrays,
+ * so recording a reading neither boxes nor allocates.
+ */
+public class SensorRingBuffer {
+
+    private final String device;
+    private final String type;
+    private final long[] timestamps;
+    private final double[] values;
+
+    private int head;   // next slot to write
+    private int size;
+
+    public SensorRingBuffer(String device, String type, int capacity) {
+        this.device = device;
+        this.type = type;
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    public synchronized void add(long timestamp, double value) {
+        timestamps[head] = timestamp;
+        values[head] = value;
+        head = (head + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Returns the readings with {@code timestamp >= since}, walking back from the newest one.
+     */
+    public synchronized RecentReadings since(long since) {
+        int capacity = timestamps.length;
+        int n = 0;
+        while (n < size && timestamps[Math.floorMod(head - 1 - n, capacity)] >= since) {
+            n++;
+        }
+
+        long[] ts = new long[n];
+        double[] vs = new double[n];
+        int start = Math.floorMod(head - n, capacity);
+        int firstPart = Math.min(n, capacity - start);
+        System.arraycopy(timestamps, start, ts, 0, firstPart);
+        System.arraycopy(values, start, vs, 0, firstPart);
+        System.arraycopy(timestamps, 0, ts, firstPart, n - firstPart);
+        System.arraycopy(values, 0, vs, firstPart, n - firstPart);
+        return new RecentReadings(device, type, ts, vs);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
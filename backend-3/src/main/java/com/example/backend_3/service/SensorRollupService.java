@@ -0,0 +1,330 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorReading;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the 1-minute, 1-hour and 1-day rollup tables from the ingested readings.
+ * Each sensor keeps one open bucket per resolution in memory; when a reading starts a newer
+ * bucket the old one is closed and queued, and every flush interval the queued buckets are upserted.
+ * Open hour and day buckets are written as partial deltas on each flush too, so long buckets show up
+ * without waiting for their end. The upsert merges deltas (count and sum add up, min/max widen, the
+ * newer last wins), which also makes late readings for an already written bucket safe.
+ * Nothing is backfilled: the first flush records when this node started collecting in SensorRollupCoverage
+ * (kept while rollups stay enabled), and history before that is answered from raw rows.
+ */
+@Service
+public class SensorRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorRollupService.class);
+
+    public enum Resolution {
+        MINUTE(TimeUnit.MINUTES.toMillis(1), "SensorRollupMinute"),
+        HOUR(TimeUnit.HOURS.toMillis(1), "SensorRollupHour"),
+        DAY(TimeUnit.DAYS.toMillis(1), "SensorRollupDay");
+
+        private final long millis;
+        private final String table;
+
+        Resolution(long millis, String table) {
+            this.millis = millis;
+            this.table = table;
+        }
+
+        public long millis() {
+            return millis;
+        }
+
+        public String table() {
+            return table;
+        }
+
+        /**
+         * Coarsest resolution whose buckets tile {@code step} exactly, or {@code null} when none does.
+         */
+        public static Resolution coarsestFor(long step) {
+            Resolution[] all = values();
+            for (int i = all.length - 1; i >= 0; i--) {
+                if (step % all[i].millis == 0) {
+                    return all[i];
+                }
+            }
+            return null;
+        }
+
+        private String upsertSql() {
+            // MySQL applies the assignments left to right, last_value has to read the old last_timestamp
+            return "INSERT INTO " + table
+                + " (deviceId, sensorType, bucketStart, sample_count, min_value, max_value, sum_value, last_value, last_timestamp)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE"
+                + " sample_count = sample_count + VALUES(sample_count),"
+                + " min_value = LEAST(min_value, VALUES(min_value)),"
+                + " max_value = GREATEST(max_value, VALUES(max_value)),"
+                + " sum_value = sum_value + VALUES(sum_value),"
+                + " last_value = CASE WHEN VALUES(last_timestamp) >= last_timestamp THEN VALUES(last_value) ELSE last_value END,"
+                + " last_timestamp = GREATEST(last_timestamp, VALUES(last_timestamp))";
+        }
+    }
+
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+
+    // The first node to flush sets the watermark, later starts keep it
+    private static final String COVERAGE_INSERT_SQL =
+        "INSERT INTO SensorRollupCoverage (id, coveredFrom) VALUES (1, ?) ON DUPLICATE KEY UPDATE id = id";
+    private static final String COVERAGE_SELECT_SQL = "SELECT coveredFrom FROM SensorRollupCoverage WHERE id = 1";
+    // Rollups written before a period with rollups disabled would have gaps, coverage restarts when re-enabled
+    private static final String COVERAGE_DELETE_SQL = "DELETE FROM SensorRollupCoverage WHERE id = 1";
+
+    /**
+     * Aggregate of the readings of one sensor in one bucket since it was last written.
+     */
+    record Delta(Resolution resolution, String device, String type, long start,
+                 long count, double min, double max, double sum, double last, long lastTimestamp) {}
+
+    private static final class Bucket {
+        final long start;
+        long count;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+        double last;
+        long lastTimestamp = Long.MIN_VALUE;
+
+        Bucket(long start) {
+            this.start = start;
+        }
+
+        void add(long timestamp, double value) {
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            if (timestamp >= lastTimestamp) {
+                last = value;
+                lastTimestamp = timestamp;
+            }
+        }
+    }
+
+    // One per device and sensor type, guarded by itself
+    private static final class Series {
+        final String device;
+        final String type;
+        final Bucket[] open = new Bucket[RESOLUTIONS.length];
+
+        Series(String device, String type) {
+            this.device = device;
+            this.type = type;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long coveredFrom = Long.MAX_VALUE;
+    private volatile boolean coverageSynced;
+    private final Map<String, Map<String, Series>> series = new ConcurrentHashMap<>();
+    private final Queue<Delta> closed = new ConcurrentLinkedQueue<>();
+
+    private final Counter bucketsWritten;
+    private final Counter bucketsFailed;
+
+    public SensorRollupService(
+        JdbcTemplate jdbcTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${sensor.rollup.enabled:true}") boolean enabled,
+        @Value("${sensor.rollup.batch-size:500}") int batchSize,
+        @Value("${sensor.rollup.flush-interval-ms:60000}") long flushIntervalMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        this.bucketsWritten = Counter.builder("sensor.rollup.buckets")
+            .description("Rollup bucket deltas upserted")
+            .tag("outcome", "written")
+            .register(meterRegistry);
+        this.bucketsFailed = Counter.builder("sensor.rollup.buckets")
+            .description("Rollup bucket deltas upserted")
+            .tag("outcome", "failed")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rollup rows are complete for buckets that ended at least this long ago; later data is only in SensorData.
+     */
+    public long getLagMillis() {
+        // A bucket is written on the first flush after it ends, plus a margin for readings arriving late
+        return flushIntervalMillis + Resolution.MINUTE.millis;
+    }
+
+    /**
+     * Rollup buckets starting at or after this hold every reading; earlier history is only in SensorData.
+     * {@code Long.MAX_VALUE} while rollups are disabled or the watermark has not been read yet.
+     */
+    public long getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    /**
+     * Called for every accepted reading.
+     */
+    public void record(SensorReading reading) {
+        if (!enabled) {
+            return;
+        }
+        Series s = series(reading.deviceId(), reading.sensorType());
+        long timestamp = reading.timestamp();
+        synchronized (s) {
+            for (int i = 0; i < RESOLUTIONS.length; i++) {
+                long start = Math.floorDiv(timestamp, RESOLUTIONS[i].millis) * RESOLUTIONS[i].millis;
+                Bucket bucket = s.open[i];
+                if (bucket != null && bucket.start == start) {
+                    bucket.add(timestamp, reading.value());
+                    continue;
+                }
+                Bucket fresh = new Bucket(start);
+                fresh.add(timestamp, reading.value());
+                if (bucket != null && start < bucket.start) {
+                    // Late reading for an earlier bucket: written on its own, the upsert merges it
+                    closed.add(delta(RESOLUTIONS[i], s, fresh));
+                    continue;
+                }
+                if (bucket != null) {
+                    closed.add(delta(RESOLUTIONS[i], s, bucket));
+                }
+                s.open[i] = fresh;
+            }
+        }
+    }
+
+    private Series series(String device, String type) {
+        Map<String, Series> byType = series.get(device);
+        if (byType == null) {
+            byType = series.computeIfAbsent(device, d -> new ConcurrentHashMap<>());
+        }
+        Series s = byType.get(type);
+        return s != null ? s : byType.computeIfAbsent(type, t -> new Series(device, type));
+    }
+
+    private static Delta delta(Resolution resolution, Series s, Bucket b) {
+        return new Delta(resolution, s.device, s.type, b.start, b.count, b.min, b.max, b.sum, b.last, b.lastTimestamp);
+    }
+
+    @Scheduled(fixedDelayString = "${sensor.rollup.flush-interval-ms:60000}")
+    public void flush() {
+        if (!coverageSynced) {
+            syncCoverage();
+        }
+        if (!enabled) {
+            return;
+        }
+        write(collect(System.currentTimeMillis()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        // Everything still open is written as a partial delta
+        write(collect(Long.MAX_VALUE));
+    }
+
+    private void syncCoverage() {
+        try {
+            if (enabled) {
+                jdbcTemplate.update(COVERAGE_INSERT_SQL, startedAt);
+                coveredFrom = jdbcTemplate.queryForObject(COVERAGE_SELECT_SQL, Long.class);
+                logger.info("✅ Rollups cover readings from {}", coveredFrom);
+            } else {
+                jdbcTemplate.update(COVERAGE_DELETE_SQL);
+            }
+            coverageSynced = true;
+        } catch (DataAccessException e) {
+            // Retried on the next flush, history keeps reading raw rows meanwhile
+            logger.error("❌ Failed to read rollup coverage", e);
+        }
+    }
+
+    /**
+     * Takes the closed buckets, the open buckets that have ended by {@code now}, and the open hour and day
+     * buckets as partial deltas. Open minute buckets stay in memory until they end.
+     */
+    List<Delta> collect(long now) {
+        List<Delta> deltas = new ArrayList<>();
+        Delta delta;
+        while ((delta = closed.poll()) != null) {
+            deltas.add(delta);
+        }
+        for (Map<String, Series> byType : series.values()) {
+            for (Series s : byType.values()) {
+                synchronized (s) {
+                    for (int i = 0; i < RESOLUTIONS.length; i++) {
+                        Bucket bucket = s.open[i];
+                        boolean ended = bucket != null && bucket.start + RESOLUTIONS[i].millis <= now;
+                        if (bucket != null && (ended || RESOLUTIONS[i] != Resolution.MINUTE)) {
+                            deltas.add(delta(RESOLUTIONS[i], s, bucket));
+                            s.open[i] = null;
+                        }
+                    }
+                }
+            }
+        }
+        return deltas;
+    }
+
+    private void write(List<Delta> deltas) {
+        for (Resolution resolution : RESOLUTIONS) {
+            List<Delta> batch = deltas.stream().filter(d -> d.resolution() == resolution).toList();
+            if (!batch.isEmpty()) {
+                write(resolution, batch);
+            }
+        }
+    }
+
+    private void write(Resolution resolution, List<Delta> deltas) {
+        try {
+            jdbcTemplate.batchUpdate(resolution.upsertSql(), deltas, batchSize, (ps, d) -> {
+                ps.setString(1, d.device());
+                ps.setString(2, d.type());
+                ps.setLong(3, d.start());
+                ps.setLong(4, d.count());
+                ps.setDouble(5, d.min());
+                ps.setDouble(6, d.max());
+                ps.setDouble(7, d.sum());
+                ps.setDouble(8, d.last());
+                ps.setLong(9, d.lastTimestamp());
+            });
+            bucketsWritten.increment(deltas.size());
+        } catch (DataAccessException e) {
+            bucketsFailed.increment(deltas.size());
+            logger.error("❌ Failed to write {} {} rollup buckets", deltas.size(), resolution.table(), e);
+        }
+    }
+}
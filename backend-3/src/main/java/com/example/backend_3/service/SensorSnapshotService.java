@@ -0,0 +1,155 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.exception.SensorDataSerializationException;
+import com.example.backend_3.models.SensorReading;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Versioned, pre-serialized copy of the latest readings per device for GET /api/data.
+ * Every accepted reading bumps the device version; the JSON is only rebuilt when a request sees a
+ * newer version than the cached one, so repeated polls between updates cost a map lookup.
+ * Long-poll callers wait on {@link #awaitChange} instead of spinning.
+ * Only ingestion creates device entries; reads of a device without readings get version 0 and leave no trace.
+ */
+@Service
+public class SensorSnapshotService {
+
+    public record Snapshot(long version, byte[] json, String etag) {}
+
+    private static final class DeviceState {
+        final AtomicLong version = new AtomicLong();
+        final Set<CompletableFuture<Long>> waiters = ConcurrentHashMap.newKeySet();
+        volatile Snapshot snapshot;
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, DeviceState> devices = new ConcurrentHashMap<>();
+    // Long-poll callers of devices without readings yet; a set is removed once its last waiter is done
+    private final Map<String, Set<CompletableFuture<Long>>> unknownDeviceWaiters = new ConcurrentHashMap<>();
+    // Versions restart with the process, the epoch keeps ETags from an earlier run from matching
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * Called for every accepted reading of {@code device}.
+     */
+    public void markChanged(String device) {
+        DeviceState state = devices.get(device);
+        boolean created = state == null;
+        if (created) {
+            state = devices.computeIfAbsent(device, d -> new DeviceState());
+        }
+        long version = state.version.incrementAndGet();
+        if (!state.waiters.isEmpty()) {
+            for (CompletableFuture<Long> waiter : state.waiters) {
+                state.waiters.remove(waiter);
+                waiter.complete(version);
+            }
+        }
+        if (created) {
+            Set<CompletableFuture<Long>> waiters = unknownDeviceWaiters.remove(device);
+            if (waiters != null) {
+                waiters.forEach(waiter -> waiter.complete(version));
+            }
+        }
+    }
+
+    public long getVersion(String device) {
+        DeviceState state = devices.get(device);
+        return state != null ? state.version.get() : 0;
+    }
+
+    int deviceCount() {
+        return devices.size();
+    }
+
+    /**
+     * @param source the current readings of a device, only called when the cached JSON is stale
+     */
+    public Snapshot getSnapshot(String device, Function<String, Map<String, SensorReading>> source) {
+        DeviceState state = devices.get(device);
+        if (state == null) {
+            return new Snapshot(0, serialize(source.apply(device)), etag(0));
+        }
+        Snapshot snapshot = state.snapshot;
+        if (snapshot != null && snapshot.version() == state.version.get()) {
+            return snapshot;
+        }
+        synchronized (state) {
+            // Read the version first: the map may already contain newer readings, never older ones
+            long version = state.version.get();
+            snapshot = state.snapshot;
+            if (snapshot == null || snapshot.version() != version) {
+                snapshot = new Snapshot(version, serialize(source.apply(device)), etag(version));
+                state.snapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    private byte[] serialize(Map<String, SensorReading> readings) {
+        try {
+            return objectMapper.writeValueAsBytes(readings);
+        } catch (JsonProcessingException e) {
+            throw new SensorDataSerializationException("Failed to serialize sensor data", e);
+        }
+    }
+
+    private String etag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * Completes with the new version once {@code device} moves past {@code version}, immediately if it already has.
+     * Callers that give up should cancel the future so it is dropped from the waiters.
+     */
+    public CompletableFuture<Long> awaitChange(String device, long version) {
+        DeviceState state = devices.get(device);
+        if (state == null) {
+            return awaitFirstReading(device, version);
+        }
+        long current = state.version.get();
+        if (current != version) {
+            return CompletableFuture.completedFuture(current);
+        }
+        CompletableFuture<Long> waiter = new CompletableFuture<>();
+        waiter.whenComplete((v, e) -> state.waiters.remove(waiter));
+        state.waiters.add(waiter);
+        // An update between the check above and registration would otherwise be missed
+        current = state.version.get();
+        if (current != version) {
+            waiter.complete(current);
+        }
+        return waiter;
+    }
+
+    private CompletableFuture<Long> awaitFirstReading(String device, long version) {
+        if (version != 0) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        CompletableFuture<Long> waiter = new CompletableFuture<>();
+        unknownDeviceWaiters.compute(device, (d, waiters) -> {
+            Set<CompletableFuture<Long>> set = waiters != null ? waiters : ConcurrentHashMap.newKeySet();
+            set.add(waiter);
+            return set;
+        });
+        waiter.whenComplete((v, e) -> unknownDeviceWaiters.computeIfPresent(device, (d, waiters) -> {
+            waiters.remove(waiter);
+            return waiters.isEmpty() ? null : waiters;
+        }));
+        // markChanged drains the set right after creating the entry, one created before registration is seen here
+        DeviceState state = devices.get(device);
+        if (state != null) {
+            waiter.complete(state.version.get());
+        }
+        return waiter;
+    }
+}
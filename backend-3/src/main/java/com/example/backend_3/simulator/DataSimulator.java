@@ -1,29 +1,66 @@
 package com.example.backend_3.simulator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.backend_3.redis.RedisSubscriber;
+import com.example.backend_3.redis.SensorBinaryFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Random;
 
+/**
+ * Publishes one reading per sensor every second. Publish modes:
+ * {@code channels} - one round trip per sensor on {@code sensor:<type>},
+ * {@code pipeline} - the same messages sent in one pipelined round trip,
+ * {@code batch}    - a single message with all readings on {@value RedisSubscriber#BATCH_CHANNEL}.
+ * With {@code sensor.ingest.mode=stream} the same messages are appended to the streams of those names.
+ * {@code simulator.payload-format=binary} sends single readings as {@link SensorBinaryFormat} records.
+ */
 @Component
 public class DataSimulator {
 
     private static final Logger logger = LoggerFactory.getLogger(DataSimulator.class);
 
-    private static final String FIELD_VALUE = "value";
-    private static final String FIELD_TIMESTAMP = "timestamp";
+    private static final byte[] BATCH_CHANNEL = RedisSubscriber.BATCH_CHANNEL.getBytes(StandardCharsets.UTF_8);
 
     private final StringRedisTemplate redisTemplate;
     private final Random random = new Random();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String device;
+    private final List<String> sensors;
+    private final List<byte[]> channels;
+    private final String publishMode;
+    private final SensorSink sink;
+    private final boolean binary;
 
-    public DataSimulator(StringRedisTemplate redisTemplate) {
+    public DataSimulator(
+        StringRedisTemplate redisTemplate,
+        @Value("${DEVICE_NAME}") String device,
+        @Value("${simulator.sensors:temperature,humidity,voltage}") List<String> sensors,
+        @Value("${simulator.publish-mode:pipeline}") String publishMode,
+        @Value("${simulator.payload-format:json}") String payloadFormat,
+        @Value("${sensor.ingest.mode:pubsub}") String ingestMode,
+        @Value("${sensor.stream.max-len:100000}") long streamMaxLen
+    ) {
         this.redisTemplate = redisTemplate;
+        this.device = device;
+        this.sensors = List.copyOf(sensors);
+        this.channels = sensors.stream().map(type -> ("sensor:" + type).getBytes(StandardCharsets.UTF_8)).toList();
+        this.publishMode = publishMode;
+        this.sink = new SensorSink(ingestMode, streamMaxLen);
+        this.binary = "binary".equals(payloadFormat);
+        if (!List.of("channels", "pipeline", "batch").contains(publishMode)) {
+            throw new IllegalArgumentException("Unknown simulator.publish-mode: " + publishMode);
+        }
+        if (!List.of("json", "binary").contains(payloadFormat)) {
+            throw new IllegalArgumentException("Unknown simulator.payload-format: " + payloadFormat);
+        }
     }
 
     private double generateValue() {
@@ -33,18 +70,49 @@ public class DataSimulator {
     @Scheduled(fixedRate = 1000)
     public void publishAllSensors() {
         try {
-            double timestamp = System.currentTimeMillis() / 1000.0;
-
-            Map<String, Object> temperature = Map.of(FIELD_VALUE, generateValue(), FIELD_TIMESTAMP, timestamp);
-            Map<String, Object> humidity = Map.of(FIELD_VALUE, generateValue(), FIELD_TIMESTAMP, timestamp);
-            Map<String, Object> voltage = Map.of(FIELD_VALUE, generateValue(), FIELD_TIMESTAMP, timestamp);
+            long timestamp = System.currentTimeMillis();
 
-            redisTemplate.convertAndSend("sensor:temperature", objectMapper.writeValueAsString(temperature));
-            redisTemplate.convertAndSend("sensor:humidity", objectMapper.writeValueAsString(humidity));
-            redisTemplate.convertAndSend("sensor:voltage", objectMapper.writeValueAsString(voltage));
+            switch (publishMode) {
+                case "batch" -> redisTemplate.execute((RedisCallback<Object>) connection -> {
+                    sink.send(connection, BATCH_CHANNEL, batchBody(timestamp));
+                    return null;
+                });
+                case "pipeline" -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    publishEach(connection, timestamp);
+                    return null;
+                });
+                default -> redisTemplate.execute((RedisCallback<Object>) connection -> {
+                    publishEach(connection, timestamp);
+                    return null;
+                });
+            }
 
         } catch (Exception e) {
             logger.error("❌ Failed to publish sensor data", e);
         }
     }
+
+    private void publishEach(RedisConnection connection, long timestamp) {
+        for (byte[] channel : channels) {
+            double value = generateValue();
+            byte[] body = binary
+                ? SensorBinaryFormat.encode(value, timestamp)
+                : ("{\"value\":" + value + ",\"timestamp\":" + timestamp + "}").getBytes(StandardCharsets.UTF_8);
+            sink.send(connection, channel, body);
+        }
+    }
+
+    private byte[] batchBody(long timestamp) {
+        StringBuilder json = new StringBuilder(32 + sensors.size() * 64)
+            .append("{\"device\":\"").append(device).append("\",\"readings\":[");
+        for (int i = 0; i < sensors.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"type\":\"").append(sensors.get(i))
+                .append("\",\"value\":").append(generateValue())
+                .append(",\"timestamp\":").append(timestamp).append('}');
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,215 @@
+package com.example.backend_3.simulator;
+
+import com.example.backend_3.redis.SensorBinaryFormat;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load-test mode of the simulator: N devices x M sensors published on {@code sensor:<device>:<type>}
+ * at a target aggregate rate. Each producer thread owns a slice of the channels and sends them in
+ * pipelined batches, so one round trip carries {@code batch-size} messages. The achieved rate is
+ * logged every report interval and exported as {@code simulator.published}.
+ * With {@code sensor.ingest.mode=stream} the messages are appended to streams of the same name,
+ * {@code simulator.payload-format=binary} sends {@link SensorBinaryFormat} records instead of JSON.
+ */
+@Component
+@ConditionalOnProperty(name = "simulator.load.enabled", havingValue = "true")
+public class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final List<String> SENSOR_TYPES = List.of("temperature", "humidity", "voltage");
+    // Do not try to catch up after a stall longer than this, it would only produce a burst
+    private static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final StringRedisTemplate redisTemplate;
+    private final int devices;
+    private final int sensorsPerDevice;
+    private final long targetRate;
+    private final int batchSize;
+    private final int producers;
+    private final boolean virtualThreads;
+    private final long durationSeconds;
+    private final String devicePrefix;
+    private final SensorSink sink;
+    private final boolean binary;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    private long startedAt;
+    private long lastReportAt;
+    private long lastReportCount;
+
+    public LoadGenerator(
+        StringRedisTemplate redisTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${simulator.load.devices:10}") int devices,
+        @Value("${simulator.load.sensors-per-device:3}") int sensorsPerDevice,
+        // Messages per second over all producers, 0 publishes as fast as Redis accepts
+        @Value("${simulator.load.rate:1000}") long targetRate,
+        @Value("${simulator.load.batch-size:100}") int batchSize,
+        @Value("${simulator.load.producers:4}") int producers,
+        @Value("${simulator.load.virtual-threads:false}") boolean virtualThreads,
+        @Value("${simulator.load.duration-seconds:0}") long durationSeconds,
+        @Value("${simulator.load.device-prefix:sim-}") String devicePrefix,
+        @Value("${simulator.payload-format:json}") String payloadFormat,
+        @Value("${sensor.ingest.mode:pubsub}") String ingestMode,
+        @Value("${sensor.stream.max-len:100000}") long streamMaxLen
+    ) {
+        if (devices < 1 || sensorsPerDevice < 1 || batchSize < 1 || producers < 1 || targetRate < 0) {
+            throw new IllegalArgumentException("simulator.load.devices, sensors-per-device, batch-size and producers must be"
+                + " positive and rate not negative, got " + devices + ", " + sensorsPerDevice + ", " + batchSize + ", "
+                + producers + ", " + targetRate);
+        }
+        this.redisTemplate = redisTemplate;
+        this.devices = devices;
+        this.sensorsPerDevice = sensorsPerDevice;
+        this.targetRate = targetRate;
+        this.batchSize = batchSize;
+        // Every producer needs at least one channel, and one message/s of the rate since 0 would mean unlimited
+        long maxProducers = Math.min((long) devices * sensorsPerDevice, targetRate > 0 ? targetRate : Long.MAX_VALUE);
+        this.producers = (int) Math.min(producers, maxProducers);
+        this.virtualThreads = virtualThreads;
+        this.durationSeconds = durationSeconds;
+        this.devicePrefix = devicePrefix;
+        this.sink = new SensorSink(ingestMode, streamMaxLen);
+        this.binary = "binary".equals(payloadFormat);
+
+        FunctionCounter.builder("simulator.published", published, AtomicLong::get)
+            .description("Messages published by the load generator")
+            .tag("outcome", "success")
+            .register(meterRegistry);
+        FunctionCounter.builder("simulator.published", failed, AtomicLong::get)
+            .description("Messages published by the load generator")
+            .tag("outcome", "failed")
+            .register(meterRegistry);
+    }
+
+    // Started once the context is ready, so the local subscriber already listens
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<List<byte[]>> slices = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            slices.add(new ArrayList<>());
+        }
+        int n = 0;
+        for (int d = 0; d < devices; d++) {
+            String device = devicePrefix + String.format("%04d", d);
+            for (int s = 0; s < sensorsPerDevice; s++) {
+                String type = s < SENSOR_TYPES.size() ? SENSOR_TYPES.get(s) : "sensor-" + s;
+                slices.get(n++ % producers).add(("sensor:" + device + ":" + type).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        startedAt = System.nanoTime();
+        lastReportAt = startedAt;
+        running = true;
+        Thread.Builder builder = virtualThreads
+            ? Thread.ofVirtual().name("load-generator-", 0)
+            : Thread.ofPlatform().name("load-generator-", 0).daemon();
+        for (int i = 0; i < producers; i++) {
+            // The remainder of the division goes to the first producers, so the shares add up to the target
+            long ratePerProducer = targetRate / producers + (i < targetRate % producers ? 1 : 0);
+            List<byte[]> channels = slices.get(i);
+            threads.add(builder.start(() -> produce(channels, ratePerProducer)));
+        }
+        logger.info("✅ Load generator started: {} devices x {} sensors, target {} msg/s, batch {}, {} {} producers",
+            devices, sensorsPerDevice, targetRate > 0 ? targetRate : "unlimited", batchSize, producers,
+            virtualThreads ? "virtual" : "platform");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void produce(List<byte[]> channels, long ratePerProducer) {
+        long intervalNanos = ratePerProducer > 0 ? TimeUnit.SECONDS.toNanos(batchSize) / ratePerProducer : 0;
+        long deadline = durationSeconds > 0 ? startedAt + TimeUnit.SECONDS.toNanos(durationSeconds) : Long.MAX_VALUE;
+        long next = System.nanoTime();
+        int cursor = 0;
+
+        while (running && System.nanoTime() < deadline) {
+            int start = cursor;
+            try {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    publishBatch(connection, channels, start);
+                    return null;
+                });
+                published.addAndGet(batchSize);
+            } catch (RuntimeException e) {
+                failed.addAndGet(batchSize);
+                logger.error("❌ Load generator failed to publish batch", e);
+                LockSupport.parkNanos(MAX_LAG_NANOS);
+            }
+            cursor = (cursor + batchSize) % channels.size();
+
+            if (intervalNanos > 0) {
+                next += intervalNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else if (wait < -MAX_LAG_NANOS) {
+                    next = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    private void publishBatch(RedisConnection connection, List<byte[]> channels, int start) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < batchSize; i++) {
+            byte[] channel = channels.get((start + i) % channels.size());
+            double value = Math.round((10 + random.nextDouble() * 90) * 10.0) / 10.0;
+            byte[] body = binary
+                ? SensorBinaryFormat.encode(value, timestamp)
+                : ("{\"value\":" + value + ",\"timestamp\":" + timestamp + "}").getBytes(StandardCharsets.UTF_8);
+            sink.send(connection, channel, body);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${simulator.load.report-interval-ms:5000}")
+    public void report() {
+        if (!running) {
+            return;
+        }
+        long now = System.nanoTime();
+        long total = published.get();
+        double elapsedSeconds = (now - lastReportAt) / 1e9;
+        if (elapsedSeconds <= 0) {
+            return;
+        }
+        double rate = (total - lastReportCount) / elapsedSeconds;
+        double averageRate = total / ((now - startedAt) / 1e9);
+        logger.info("📤 Load generator: {} msg/s (avg {}, target {}), {} published, {} failed",
+            Math.round(rate), Math.round(averageRate), targetRate > 0 ? targetRate : "unlimited", total, failed.get());
+        lastReportAt = now;
+        lastReportCount = total;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.backend_3.simulator;
+
+import com.example.backend_3.redis.SensorStreamConsumer;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Where the simulators send a message for {@code sensor:*}: published on the channel in
+ * {@code pubsub} ingest mode, appended to the stream of the same name in {@code stream} mode.
+ * Streams are capped at roughly {@code maxLen} entries so an idle backend cannot fill Redis.
+ */
+final class SensorSink {
+
+    private static final byte[] DATA_FIELD = SensorStreamConsumer.DATA_FIELD.getBytes(StandardCharsets.UTF_8);
+
+    private final boolean stream;
+    private final XAddOptions addOptions;
+
+    SensorSink(String ingestMode, long maxLen) {
+        if (!"pubsub".equals(ingestMode) && !"stream".equals(ingestMode)) {
+            throw new IllegalArgumentException("Unknown sensor.ingest.mode: " + ingestMode);
+        }
+        this.stream = "stream".equals(ingestMode);
+        // ~ trimming drops whole nodes only, much cheaper than an exact MAXLEN on every XADD
+        this.addOptions = XAddOptions.maxlen(maxLen).approximateTrimming(true);
+    }
+
+    boolean isStream() {
+        return stream;
+    }
+
+    void send(RedisConnection connection, byte[] channel, byte[] body) {
+        if (stream) {
+            connection.streamCommands().xAdd(StreamRecords.newRecord().in(channel).ofMap(Map.of(DATA_FIELD, body)), addOptions);
+        } else {
+            connection.publish(channel, body);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.backend_3.sse;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-Sent Events feed of sensor updates for one-way clients.
+ * Every tick, the sensors that changed since the previous tick are merged into one
+ * {@code {"<topic>":{"value":..,"timestamp":..},..}} event that is encoded once and shared by all
+ * connections. Events carry increasing ids and the last ones are kept, so a reconnect with
+ * {@code Last-Event-ID} resumes without gaps; otherwise the client starts from a full snapshot.
+ */
+@Component
+public class SensorEventStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorEventStream.class);
+    private static final String EVENT_NAME = "sensors";
+    private static final byte[] TOPIC_END = "\":".getBytes(StandardCharsets.UTF_8);
+
+    private record ReplayEvent(long id, Set<DataWithMediaType> data) {}
+
+    // topic -> value JSON, as received
+    private final Map<String, byte[]> latest = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> changed = new ConcurrentHashMap<>();
+    private final Set<SseClient> clients = ConcurrentHashMap.newKeySet();
+
+    // Replay ring and sequence are guarded by this
+    private final ReplayEvent[] replay;
+    private long sequence;
+    private long lastEventAt = System.nanoTime();
+
+    private final long timeoutMillis;
+    private final long tickMillis;
+    private final long heartbeatNanos;
+    private final int maxBacklog;
+    private final int sendThreads;
+    private final Set<DataWithMediaType> heartbeat = SseEmitter.event().comment("keep-alive").build();
+    private ScheduledExecutorService tickExecutor;
+    private ThreadPoolExecutor sendExecutor;
+
+    private final Counter events;
+    private final Counter clientsDropped;
+
+    public SensorEventStream(
+        MeterRegistry meterRegistry,
+        @Value("${sse.replay-size:1000}") int replaySize,
+        @Value("${sse.timeout-ms:1800000}") long timeoutMillis,
+        @Value("${sse.tick-ms:250}") long tickMillis,
+        @Value("${sse.heartbeat-ms:15000}") long heartbeatMillis,
+        @Value("${sse.max-backlog:256}") int maxBacklog,
+        @Value("${sse.send-threads:4}") int sendThreads
+    ) {
+        this.replay = new ReplayEvent[replaySize];
+        this.timeoutMillis = timeoutMillis;
+        this.tickMillis = tickMillis;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        this.maxBacklog = maxBacklog;
+        this.sendThreads = sendThreads;
+
+        Gauge.builder("sse.clients", clients, Set::size)
+            .description("Open Server-Sent Events connections")
+            .register(meterRegistry);
+        this.events = Counter.builder("sse.events")
+            .description("Sensor events emitted to Server-Sent Events clients")
+            .register(meterRegistry);
+        this.clientsDropped = Counter.builder("sse.clients.dropped")
+            .description("SSE connections closed because their backlog exceeded sse.max-backlog")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(10_000), Thread.ofPlatform().name("sse-send-", 0).daemon().factory());
+        tickExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("sse-tick").daemon().factory());
+        tickExecutor.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        tickExecutor.shutdownNow();
+        clients.forEach(SseClient::close);
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Called for every accepted reading; cheap, the event is built on the next tick.
+     */
+    public void record(String topic, byte[] value) {
+        byte[] line = singleLine(value);
+        latest.put(topic, line);
+        changed.put(topic, line);
+    }
+
+    // A line break would end the SSE data field; in valid JSON it can only be whitespace
+    private static byte[] singleLine(byte[] json) {
+        byte[] copy = null;
+        for (int i = 0; i < json.length; i++) {
+            if (json[i] == '\n' || json[i] == '\r') {
+                if (copy == null) {
+                    copy = json.clone();
+                }
+                copy[i] = ' ';
+            }
+        }
+        return copy != null ? copy : json;
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        return subscribe(lastEventId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(Long lastEventId, SseEmitter emitter) {
+        SseClient client = new SseClient(emitter, maxBacklog);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(client::close);
+        emitter.onError(e -> clients.remove(client));
+
+        // Under the lock no event can be emitted between the backlog below and registration
+        synchronized (this) {
+            if (lastEventId != null && canReplayFrom(lastEventId)) {
+                for (long id = lastEventId + 1; id <= sequence; id++) {
+                    client.enqueue(replay[slot(id)].data(), sendExecutor);
+                }
+            } else {
+                client.enqueue(buildEvent(sequence, encode(latest)), sendExecutor);
+            }
+            clients.add(client);
+        }
+        return emitter;
+    }
+
+    // A gap larger than the backlog limit is cheaper to close with a snapshot than by replaying
+    private boolean canReplayFrom(long lastEventId) {
+        long oldest = Math.max(1, sequence - replay.length + 1);
+        return lastEventId <= sequence && lastEventId >= oldest - 1 && sequence - lastEventId <= maxBacklog;
+    }
+
+    private int slot(long id) {
+        return (int) (id % replay.length);
+    }
+
+    void tick() {
+        try {
+            if (changed.isEmpty()) {
+                if (System.nanoTime() - lastEventAt >= heartbeatNanos) {
+                    lastEventAt = System.nanoTime();
+                    dispatch(heartbeat);
+                }
+                return;
+            }
+
+            Map<String, byte[]> drained = new LinkedHashMap<>();
+            for (String topic : changed.keySet()) {
+                byte[] value = changed.remove(topic);
+                if (value != null) {
+                    drained.put(topic, value);
+                }
+            }
+            byte[] json = encode(drained);
+
+            synchronized (this) {
+                long id = ++sequence;
+                Set<DataWithMediaType> event = buildEvent(id, json);
+                replay[slot(id)] = new ReplayEvent(id, event);
+                dispatch(event);
+            }
+            lastEventAt = System.nanoTime();
+            events.increment();
+        } catch (Exception e) {
+            logger.error("❌ Failed to emit SSE sensor event", e);
+        }
+    }
+
+    private void dispatch(Set<DataWithMediaType> event) {
+        for (SseClient client : clients) {
+            if (!client.enqueue(event, sendExecutor)) {
+                clients.remove(client);
+                clientsDropped.increment();
+                logger.warn("⚠️ Closed slow SSE client, backlog above {}", maxBacklog);
+            }
+        }
+    }
+
+    // Raw bytes go out through the byte[] converter, the same array is written to every client
+    private static Set<DataWithMediaType> buildEvent(long id, byte[] json) {
+        return SseEmitter.event()
+            .id(Long.toString(id))
+            .name(EVENT_NAME)
+            .data(json, MediaType.APPLICATION_JSON)
+            .build();
+    }
+
+    private static byte[] encode(Map<String, byte[]> values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + values.size() * 64);
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            // Escaped, a topic is a channel name chosen by the publisher
+            out.write('"');
+            out.writeBytes(JsonStringEncoder.getInstance().quoteAsUTF8(entry.getKey()));
+            out.writeBytes(TOPIC_END);
+            out.writeBytes(entry.getValue());
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.backend_3.sse;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One SSE connection. Events are queued without blocking the producer and written by at most one
+ * executor task at a time, so a slow client only delays itself. A client whose backlog exceeds the
+ * limit is closed; it reconnects with Last-Event-ID and resumes from the replay buffer.
+ */
+class SseClient {
+
+    private final SseEmitter emitter;
+    private final int maxBacklog;
+    private final Queue<Set<DataWithMediaType>> backlog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlogSize = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    SseClient(SseEmitter emitter, int maxBacklog) {
+        this.emitter = emitter;
+        this.maxBacklog = maxBacklog;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return false when the client fell too far behind and was closed
+     */
+    boolean enqueue(Set<DataWithMediaType> event, Executor executor) {
+        if (closed) {
+            return true;
+        }
+        if (backlogSize.incrementAndGet() > maxBacklog) {
+            close();
+            return false;
+        }
+        backlog.add(event);
+        schedule(executor);
+        return true;
+    }
+
+    private void schedule(Executor executor) {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> drain(executor));
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                close();
+            }
+        }
+    }
+
+    private void drain(Executor executor) {
+        try {
+            Set<DataWithMediaType> event;
+            while (!closed && (event = backlog.poll()) != null) {
+                backlogSize.decrementAndGet();
+                emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the emitter callbacks unregister it
+            closed = true;
+        } finally {
+            draining.set(false);
+        }
+        // An event may have been queued after the last poll but before draining was cleared
+        if (!closed && !backlog.isEmpty()) {
+            schedule(executor);
+        }
+    }
+
+    void close() {
+        if (!closed) {
+            closed = true;
+            backlog.clear();
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.backend_3.websocket;
+
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Per-connection fan-out state: which topics the client wants and how often.
+ * A topic is the bare sensor type for the default device and {@code <device>:<type>} otherwise;
+ * {@code <device>:*} selects every sensor of a device.
+ * Throttled clients get frames coalesced per topic, only the latest one is kept until the next flush.
+ */
+class ClientSession {
+
+    private final WebSocketSession session;
+    private final Map<String, WebSocketMessage<?>> pending = new ConcurrentHashMap<>();
+
+    private static final String DEVICE_WILDCARD = ":*";
+
+    private volatile Set<String> topics;       // null means every topic
+    private volatile Set<String> devices = Set.of();  // devices subscribed with <device>:*
+    private volatile long minIntervalNanos;    // 0 means forward immediately
+    private volatile boolean binary;           // SensorBinaryFormat frames instead of JSON text
+    private long lastFlushNanos;
+
+    ClientSession(WebSocketSession session) {
+      this.session = session;
+    }
+
+    WebSocketSession getSession() {
+      return session;
+    }
+
+    boolean wants(String device, String topic) {
+      Set<String> current = topics;
+      return current == null || current.contains(topic) || devices.contains(device);
+    }
+
+    boolean isBinary() {
+      return binary;
+    }
+
+    void setBinary(boolean binary) {
+      this.binary = binary;
+      pending.clear();
+    }
+
+    boolean isThrottled() {
+      return minIntervalNanos > 0;
+    }
+
+    Set<String> getTopics() {
+      return topics;
+    }
+
+    void setTopics(Set<String> topics) {
+      this.devices = topics == null ? Set.of() : topics.stream()
+        .filter(topic -> topic.endsWith(DEVICE_WILDCARD))
+        .map(topic -> topic.substring(0, topic.length() - DEVICE_WILDCARD.length()))
+        .collect(Collectors.toUnmodifiableSet());
+      this.topics = topics == null ? null : Set.copyOf(topics);
+      pending.clear();
+    }
+
+    double getMaxHz() {
+      long interval = minIntervalNanos;
+      return interval == 0 ? 0 : 1_000_000_000.0 / interval;
+    }
+
+    void setMaxHz(double maxHz) {
+      this.minIntervalNanos = maxHz > 0 ? (long) (1_000_000_000.0 / maxHz) : 0;
+    }
+
+    /**
+     * @return true if an older frame of the same type was replaced (coalesced away)
+     */
+    boolean offer(String type, WebSocketMessage<?> message) {
+      return pending.put(type, message) != null;
+    }
+
+    /**
+     * Hands the coalesced frames to {@code sender} if the client's interval has elapsed.
+     * Only called from the single throttle thread.
+     */
+    void flushIfDue(long now, BiConsumer<ClientSession, WebSocketMessage<?>> sender) {
+      if (pending.isEmpty() || now - lastFlushNanos < minIntervalNanos) {
+        return;
+      }
+      lastFlushNanos = now;
+      for (Map.Entry<String, WebSocketMessage<?>> entry : pending.entrySet()) {
+        // Conditional remove so a frame that arrived meanwhile is kept for the next flush
+        if (pending.remove(entry.getKey(), entry.getValue())) {
+          sender.accept(this, entry.getValue());
+        }
+      }
+    }
+}
@@ -1,48 +1,265 @@
 package com.example.backend_3.websocket;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Clients may narrow what they receive with
+ * {@code {"subscribe":["temperature","device-7:humidity","device-9:*"],"maxHz":2}};
+ * {@code "*"} or an omitted list means every topic,
+ * {@code maxHz} is capped at {@code websocket.max-hz}, which is also the rate of a session that never asked
+ * or asked for 0 or less. {@code {"unsubscribe":[...]}} removes types again.
+ * {@code "format":"binary"} switches the session to binary frames (see {@code SensorBinaryFormat}), {@code "json"} back.
+ */
+@Component
 public class DataWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(DataWebSocketHandler.class);
-    private static final List<WebSocketSession> sessions = new ArrayList<>();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String ALL_TOPICS = "*";
+    private static final String FORMAT_JSON = "json";
+    private static final String FORMAT_BINARY = "binary";
+
+    private final Map<String, ClientSession> sessions = new ConcurrentHashMap<>();
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final long throttleTickMillis;
+    private final double maxHzLimit;
+    private ScheduledExecutorService throttleExecutor;
+
+    private final Counter bytesSent;
+    private final Counter framesCoalesced;
+    private final Counter framesFailed;
+
+    public DataWebSocketHandler(
+      MeterRegistry meterRegistry,
+      @Value("${websocket.send-time-limit-ms:5000}") int sendTimeLimit,
+      @Value("${websocket.buffer-size-limit:524288}") int bufferSizeLimit,
+      @Value("${websocket.throttle-tick-ms:50}") long throttleTickMillis,
+      @Value("${websocket.max-hz:20}") double maxHzLimit
+    ) {
+      this.sendTimeLimit = sendTimeLimit;
+      this.bufferSizeLimit = bufferSizeLimit;
+      this.throttleTickMillis = throttleTickMillis;
+      this.maxHzLimit = maxHzLimit;
+
+      Gauge.builder("websocket.sessions", sessions, Map::size)
+        .description("Open WebSocket sessions")
+        .register(meterRegistry);
+      this.bytesSent = Counter.builder("websocket.bytes.sent")
+        .description("Payload bytes handed to WebSocket sessions")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+      this.framesCoalesced = Counter.builder("websocket.frames.dropped")
+        .description("Frames not delivered to a session")
+        .tag("reason", "coalesced")
+        .register(meterRegistry);
+      this.framesFailed = Counter.builder("websocket.frames.dropped")
+        .description("Frames not delivered to a session")
+        .tag("reason", "send_failed")
+        .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+      throttleExecutor = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("websocket-throttle").daemon().factory());
+      throttleExecutor.scheduleWithFixedDelay(this::flushThrottled, throttleTickMillis, throttleTickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+      throttleExecutor.shutdownNow();
+    }
 
     @Override
     public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
-      sessions.add(session);
+      // DROP discards the oldest buffered frames of a slow client instead of blocking the sender
+      ClientSession client = new ClientSession(new ConcurrentWebSocketSessionDecorator(
+        session, sendTimeLimit, bufferSizeLimit, ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP));
+      client.setMaxHz(clampMaxHz(0));
+      sessions.put(session.getId(), client);
       logger.info("✅ WebSocket connection established: {}", session.getId());
     }
 
     @Override
     public void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) {
-      // You can log or handle incoming message here
-      logger.info("📩 Received message from {}: {}", session.getId(), message.getPayload());
+      ClientSession client = sessions.get(session.getId());
+      if (client == null) {
+        return;
+      }
+
+      JsonNode request;
+      try {
+        request = objectMapper.readTree(message.getPayload());
+      } catch (IOException e) {
+        reply(client, Map.of("error", "Invalid JSON message"));
+        return;
+      }
+
+      if (request.has("subscribe")) {
+        client.setTopics(readTopics(request.get("subscribe")));
+      }
+      if (request.has("unsubscribe") && client.getTopics() != null) {
+        Set<String> topics = new HashSet<>(client.getTopics());
+        topics.removeAll(Objects.requireNonNullElse(readTopics(request.get("unsubscribe")), Set.of()));
+        client.setTopics(topics);
+      }
+      if (request.has("format")) {
+        String format = request.get("format").asText();
+        if (!FORMAT_JSON.equals(format) && !FORMAT_BINARY.equals(format)) {
+          reply(client, Map.of("error", "Unknown format: " + format));
+          return;
+        }
+        client.setBinary(FORMAT_BINARY.equals(format));
+        if (client.isBinary()) {
+          binarySessions.add(session.getId());
+        } else {
+          binarySessions.remove(session.getId());
+        }
+      }
+      if (request.has("maxHz")) {
+        client.setMaxHz(clampMaxHz(request.get("maxHz").asDouble()));
+      }
+
+      Map<String, Object> ack = new HashMap<>();
+      ack.put("subscribed", client.getTopics() == null ? List.of(ALL_TOPICS) : client.getTopics());
+      ack.put("maxHz", client.getMaxHz());
+      ack.put("format", client.isBinary() ? FORMAT_BINARY : FORMAT_JSON);
+      reply(client, ack);
+      logger.info("📩 Session {} subscribed to {} at maxHz={}", session.getId(), ack.get("subscribed"), client.getMaxHz());
     }
 
     @Override
     public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
-      sessions.remove(session);
+      sessions.remove(session.getId());
+      binarySessions.remove(session.getId());
       logger.info("❌ WebSocket connection closed: {}", session.getId());
     }
 
-    public static void broadcast(Object data) {
-      try {
-        String json = new ObjectMapper().writeValueAsString(data);
-        for (WebSocketSession session : sessions) {
-          if (session.isOpen()) {
-            session.sendMessage(new TextMessage(json));
+    public int getSessionCount() {
+      return sessions.size();
+    }
+
+    public boolean hasBinaryClients() {
+      return !binarySessions.isEmpty();
+    }
+
+    public void broadcast(String device, String topic, byte[] json) {
+      broadcast(device, topic, json, null);
+    }
+
+    /**
+     * Sends an already serialized frame for {@code topic} to every subscribed session, the binary one to
+     * sessions that asked for it when given. Frames are built once and shared; throttled sessions only
+     * keep them as their latest pending value.
+     */
+    public void broadcast(String device, String topic, byte[] json, byte[] binary) {
+      TextMessage text = new TextMessage(json);
+      BinaryMessage binaryMessage = binary != null ? new BinaryMessage(binary) : null;
+      for (ClientSession client : sessions.values()) {
+        if (!client.wants(device, topic)) {
+          continue;
+        }
+        WebSocketMessage<?> message = client.isBinary() && binaryMessage != null ? binaryMessage : text;
+        if (client.isThrottled()) {
+          if (client.offer(topic, message)) {
+            framesCoalesced.increment();
           }
+        } else {
+          send(client, message);
+        }
+      }
+    }
+
+    void flushThrottled() {
+      long now = System.nanoTime();
+      for (ClientSession client : sessions.values()) {
+        if (client.isThrottled()) {
+          client.flushIfDue(now, this::send);
+        }
+      }
+    }
+
+    /**
+     * Keeps a session within (0, maxHzLimit]; only a server without a limit lets clients go unthrottled.
+     */
+    private double clampMaxHz(double requested) {
+      if (maxHzLimit <= 0) {
+        return requested > 0 ? requested : 0;
+      }
+      return requested > 0 ? Math.min(requested, maxHzLimit) : maxHzLimit;
+    }
+
+    private Set<String> readTopics(JsonNode node) {
+      if (node == null || !node.isArray()) {
+        return null;
+      }
+      Set<String> topics = new HashSet<>();
+      for (JsonNode topic : node) {
+        if (ALL_TOPICS.equals(topic.asText())) {
+          return null;
         }
+        topics.add(topic.asText());
+      }
+      return topics;
+    }
+
+    private void reply(ClientSession client, Map<String, ?> body) {
+      try {
+        send(client, new TextMessage(objectMapper.writeValueAsString(body)));
+      } catch (IOException e) {
+        logger.error("❌ Failed to serialize WebSocket reply", e);
+      }
+    }
+
+    private void send(ClientSession client, WebSocketMessage<?> message) {
+      WebSocketSession session = client.getSession();
+      if (!session.isOpen()) {
+        sessions.remove(session.getId());
+        binarySessions.remove(session.getId());
+        return;
+      }
+      try {
+        session.sendMessage(message);
+        bytesSent.increment(message.getPayloadLength());
+      } catch (IOException | RuntimeException e) {
+        framesFailed.increment();
+        // SessionLimitExceededException lands here when a client stops draining its socket
+        logger.warn("⚠️ Dropping WebSocket session {}: {}", session.getId(), e.getMessage());
+        sessions.remove(session.getId());
+        binarySessions.remove(session.getId());
+        closeQuietly(session);
+      }
+    }
+
+    private void closeQuietly(WebSocketSession session) {
+      try {
+        session.close(CloseStatus.SESSION_NOT_RELIABLE);
       } catch (IOException e) {
-        logger.error("❌ Failed to broadcast WebSocket message", e);
+        logger.debug("Failed to close WebSocket session {}", session.getId(), e);
       }
     }
 }
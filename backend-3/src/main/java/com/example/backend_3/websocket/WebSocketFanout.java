@@ -0,0 +1,213 @@
+package com.example.backend_3.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes WebSocket frames to sessions across nodes ({@code websocket.fanout.mode}):
+ * {@code local}  - frames go straight to this node's sessions, every node ingests every reading itself,
+ * {@code ingest} - this node ingests and publishes each frame once on {@value #CHANNEL},
+ * {@code edge}   - this node ingests nothing and only relays {@value #CHANNEL} messages to its sessions.
+ * A relayed message is {@code [u16 device length][device][u16 topic length][topic][u16 binary length][binary frame][JSON frame]};
+ * both frames are finished, so edge nodes hand the bytes on without parsing them.
+ */
+@Component
+public class WebSocketFanout implements MessageListener {
+
+    public static final String CHANNEL = "websocket:fanout";
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketFanout.class);
+    private static final byte[] CHANNEL_BYTES = CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    private final DataWebSocketHandler webSocketHandler;
+    private final StringRedisTemplate redisTemplate;
+    private final String mode;
+    private final int batchSize;
+    private final BlockingQueue<byte[]> outbox;
+    private volatile boolean running;
+    private Thread publisher;
+
+    private final Counter published;
+    private final Counter relayed;
+    private final Counter dropped;
+
+    public WebSocketFanout(
+      DataWebSocketHandler webSocketHandler,
+      StringRedisTemplate redisTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${websocket.fanout.mode:local}") String mode,
+      @Value("${websocket.fanout.queue-size:10000}") int queueSize,
+      @Value("${websocket.fanout.batch-size:500}") int batchSize
+    ) {
+      if (!List.of("local", "ingest", "edge").contains(mode)) {
+        throw new IllegalArgumentException("Unknown websocket.fanout.mode: " + mode);
+      }
+      this.webSocketHandler = webSocketHandler;
+      this.redisTemplate = redisTemplate;
+      this.mode = mode;
+      this.batchSize = batchSize;
+      this.outbox = new ArrayBlockingQueue<>(queueSize);
+
+      this.published = Counter.builder("websocket.fanout.messages")
+        .description("Frames on the WebSocket fan-out channel")
+        .tag("direction", "published")
+        .register(meterRegistry);
+      this.relayed = Counter.builder("websocket.fanout.messages")
+        .description("Frames on the WebSocket fan-out channel")
+        .tag("direction", "relayed")
+        .register(meterRegistry);
+      this.dropped = Counter.builder("websocket.fanout.messages")
+        .description("Frames on the WebSocket fan-out channel")
+        .tag("direction", "dropped")
+        .register(meterRegistry);
+    }
+
+    /**
+     * True on edge nodes, which leave sensor ingestion to the ingest node.
+     */
+    public boolean isEdge() {
+      return "edge".equals(mode);
+    }
+
+    /**
+     * True when frames travel through {@value #CHANNEL} and this node has to subscribe to it.
+     */
+    public boolean isRelayed() {
+      return !"local".equals(mode);
+    }
+
+    @PostConstruct
+    public void start() {
+      if ("ingest".equals(mode)) {
+        running = true;
+        publisher = Thread.ofPlatform().name("websocket-fanout").daemon().start(this::publishLoop);
+        logger.info("✅ Publishing WebSocket frames on {}", CHANNEL);
+      }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+      running = false;
+      if (publisher != null) {
+        publisher.join(TimeUnit.SECONDS.toMillis(5));
+      }
+    }
+
+    /**
+     * Whether a binary frame should be built for each reading: sessions of other nodes are unknown here.
+     */
+    public boolean wantsBinary() {
+      return "ingest".equals(mode) || webSocketHandler.hasBinaryClients();
+    }
+
+    /**
+     * Hands the frames for {@code topic} to the sessions of every node. Never blocks the ingest path:
+     * in ingest mode frames are queued and published in pipelined batches, a full queue drops them.
+     *
+     * @param binary the frame for binary clients, may be null when {@link #wantsBinary()} was false
+     */
+    public void dispatch(String device, String topic, byte[] json, @Nullable byte[] binary) {
+      if (!"ingest".equals(mode)) {
+        webSocketHandler.broadcast(device, topic, json, binary);
+        return;
+      }
+      if (!outbox.offer(encode(device, topic, json, binary))) {
+        dropped.increment();
+      }
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, @Nullable byte[] pattern) {
+      if (!Arrays.equals(message.getChannel(), CHANNEL_BYTES)) {
+        return;
+      }
+      try {
+        ByteBuffer in = ByteBuffer.wrap(message.getBody());
+        String device = readString(in);
+        String topic = readString(in);
+        byte[] binary = readBytes(in, Short.toUnsignedInt(in.getShort()));
+        byte[] json = readBytes(in, in.remaining());
+        relayed.increment();
+        webSocketHandler.broadcast(device, topic, json, binary.length > 0 ? binary : null);
+      } catch (RuntimeException e) {
+        dropped.increment();
+        logger.warn("⚠️ Ignoring malformed {} message: {}", CHANNEL, e.toString());
+      }
+    }
+
+    static byte[] encode(String device, String topic, byte[] json, @Nullable byte[] binary) {
+      byte[] deviceBytes = device.getBytes(StandardCharsets.UTF_8);
+      byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+      byte[] binaryBytes = binary != null ? binary : new byte[0];
+      return ByteBuffer.allocate(6 + deviceBytes.length + topicBytes.length + binaryBytes.length + json.length)
+        .putShort((short) deviceBytes.length).put(deviceBytes)
+        .putShort((short) topicBytes.length).put(topicBytes)
+        .putShort((short) binaryBytes.length).put(binaryBytes)
+        .put(json)
+        .array();
+    }
+
+    private static byte[] readBytes(ByteBuffer in, int length) {
+      byte[] bytes = new byte[length];
+      in.get(bytes);
+      return bytes;
+    }
+
+    private static String readString(ByteBuffer in) {
+      int length = Short.toUnsignedInt(in.getShort());
+      String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+      in.position(in.position() + length);
+      return value;
+    }
+
+    private void publishLoop() {
+      List<byte[]> batch = new ArrayList<>(batchSize);
+      while (running) {
+        try {
+          byte[] first = outbox.poll(500, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+          outbox.drainTo(batch, batchSize - 1);
+          redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[] message : batch) {
+              connection.publish(CHANNEL_BYTES, message);
+            }
+            return null;
+          });
+          published.increment(batch.size());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } catch (RuntimeException e) {
+          dropped.increment(batch.size());
+          logger.error("❌ Failed to publish {} WebSocket frames", batch.size(), e);
+        } finally {
+          batch.clear();
+        }
+      }
+      logger.info("⏹️ WebSocket fan-out publisher stopped");
+    }
+}
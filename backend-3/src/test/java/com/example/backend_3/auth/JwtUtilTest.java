@@ -0,0 +1,93 @@
+package com.example.backend_3.auth;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtUtilTest {
+
+	private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+
+	@Test
+	void cachesVerifiedTokensUnderTheirHashUntilExp() throws Exception {
+		JwtUtil jwtUtil = jwtUtil(10);
+		// exp has whole-second precision, so this expires between one and two seconds from now
+		long expiresAt = (System.currentTimeMillis() / 1000 + 2) * 1000;
+		String shortLived = token("bob", expiresAt);
+		String longLived = jwtUtil.generateToken("alice");
+
+		assertEquals("bob", jwtUtil.extractUsername(shortLived));
+		assertEquals("alice", jwtUtil.extractUsername(longLived));
+		assertEquals(Set.of(sha256(shortLived), sha256(longLived)), cache(jwtUtil).keySet());
+
+		Thread.sleep(expiresAt - System.currentTimeMillis() + 50);
+		jwtUtil.evictExpiredTokens();
+
+		assertEquals(Set.of(sha256(longLived)), cache(jwtUtil).keySet());
+		assertThrows(ExpiredJwtException.class, () -> jwtUtil.extractUsername(shortLived));
+		assertEquals("alice", jwtUtil.extractUsername(longLived));
+	}
+
+	@Test
+	void neverCachesTokensThatFailVerification() {
+		JwtUtil jwtUtil = jwtUtil(10);
+		String token = jwtUtil.generateToken("alice");
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+		assertThrows(JwtException.class, () -> jwtUtil.extractUsername(tampered));
+		assertEquals(0, cache(jwtUtil).size());
+	}
+
+	@Test
+	void stillVerifiesTokensOnceTheCacheIsFull() {
+		JwtUtil jwtUtil = jwtUtil(1);
+		String first = jwtUtil.generateToken("alice");
+		String second = jwtUtil.generateToken("bob");
+
+		assertEquals("alice", jwtUtil.extractUsername(first));
+		assertEquals("bob", jwtUtil.extractUsername(second));
+		assertEquals(Set.of(sha256(first)), cache(jwtUtil).keySet());
+	}
+
+	private static JwtUtil jwtUtil(int cacheMaxSize) {
+		JwtUtil jwtUtil = new JwtUtil();
+		ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+		ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", cacheMaxSize);
+		jwtUtil.init();
+		return jwtUtil;
+	}
+
+	private static String token(String subject, long expiresAt) {
+		return Jwts.builder()
+			.setSubject(subject)
+			.setExpiration(new Date(expiresAt))
+			.signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+			.compact();
+	}
+
+	private static Map<?, ?> cache(JwtUtil jwtUtil) {
+		return (Map<?, ?>) ReflectionTestUtils.getField(jwtUtil, "verifiedTokens");
+	}
+
+	private static String sha256(String token) {
+		try {
+			return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
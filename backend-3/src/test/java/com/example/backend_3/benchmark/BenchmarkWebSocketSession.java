@@ -0,0 +1,118 @@
+package com.example.backend_3.benchmark;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session that accepts every frame instantly, so benchmarks measure the fan-out itself and not a socket.
+ */
+class BenchmarkWebSocketSession implements WebSocketSession {
+
+	private final String id;
+	private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+	private long bytesSent;
+
+	BenchmarkWebSocketSession(String id) {
+		this.id = id;
+	}
+
+	long getBytesSent() {
+		return bytesSent;
+	}
+
+	@Override
+	public void sendMessage(@NonNull WebSocketMessage<?> message) {
+		bytesSent += message.getPayloadLength();
+	}
+
+	@Override
+	@NonNull
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public URI getUri() {
+		return null;
+	}
+
+	@Override
+	@NonNull
+	public HttpHeaders getHandshakeHeaders() {
+		return new HttpHeaders();
+	}
+
+	@Override
+	@NonNull
+	public Map<String, Object> getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public Principal getPrincipal() {
+		return null;
+	}
+
+	@Override
+	public InetSocketAddress getLocalAddress() {
+		return null;
+	}
+
+	@Override
+	public InetSocketAddress getRemoteAddress() {
+		return null;
+	}
+
+	@Override
+	public String getAcceptedProtocol() {
+		return null;
+	}
+
+	@Override
+	public void setTextMessageSizeLimit(int messageSizeLimit) {
+	}
+
+	@Override
+	public int getTextMessageSizeLimit() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+	}
+
+	@Override
+	public int getBinaryMessageSizeLimit() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	@NonNull
+	public List<WebSocketExtension> getExtensions() {
+		return List.of();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return true;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public void close(@NonNull CloseStatus status) {
+	}
+}
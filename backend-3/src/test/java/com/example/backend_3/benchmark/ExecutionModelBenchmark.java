@@ -0,0 +1,77 @@
+package com.example.backend_3.benchmark;
+
+import com.example.backend_3.service.ConcurrencyGuard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of requests that each block on a backend call (simulated with sleep), served by a
+ * platform pool sized like Tomcat's default 200 workers versus one virtual thread per request.
+ * Both go through a {@link ConcurrencyGuard}, so {@code permits} is the backend concurrency limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionModelBenchmark {
+
+	private static final int TOMCAT_MAX_THREADS = 200;
+
+	@Param({ "platform", "virtual" })
+	public String model;
+
+	@Param({ "64", "1024" })
+	public int permits;
+
+	@Param({ "2000" })
+	public int requests;
+
+	@Param({ "5" })
+	public long blockingMillis;
+
+	private ExecutorService executor;
+	private ConcurrencyGuard guard;
+
+	@Setup
+	public void setUp() {
+		executor = "virtual".equals(model)
+			? Executors.newVirtualThreadPerTaskExecutor()
+			: Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+		guard = new ConcurrencyGuard("backend", permits, TimeUnit.MINUTES.toMillis(1));
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public int burst() throws Exception {
+		List<Future<Integer>> results = new ArrayList<>(requests);
+		for (int i = 0; i < requests; i++) {
+			results.add(executor.submit(() -> guard.call(this::backendCall)));
+		}
+		int done = 0;
+		for (Future<Integer> result : results) {
+			done += result.get();
+		}
+		return done;
+	}
+
+	private Integer backendCall() {
+		try {
+			Thread.sleep(blockingMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return 1;
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.backend_3.benchmark;
+
+import com.example.backend_3.service.ConcurrencyGuards;
+import com.example.backend_3.service.InformationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * getInformation served from the near-cache (local), from Redis (redis) and from the database (miss).
+ * Redis is a Mockito stub and the database a no-op JdbcTemplate, so only the service's own work
+ * (Jackson parse/serialize, map handling) plus a constant stub overhead is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InformationServiceBenchmark {
+
+	@Param({ "local", "redis", "miss" })
+	public String cache;
+
+	private InformationService service;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("deviceClass", "Sensor");
+		row.put("manufacturer", "Example Corp");
+		row.put("manufacturerUri", "https://example.com");
+		row.put("model", "IOT-3000");
+		row.put("productCode", 3000);
+		row.put("hardwareRevision", "1.2");
+		row.put("softwareRevision", "3.4.5");
+		row.put("serialNumber", "SN-000123");
+		row.put("sysName", "device-3");
+		row.put("sysLocation", "Lab");
+
+		ValueOperations<String, String> ops = mock(ValueOperations.class);
+		when(ops.get(anyString())).thenReturn("redis".equals(cache) ? new ObjectMapper().writeValueAsString(row) : null);
+		StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+		when(redisTemplate.opsForValue()).thenReturn(ops);
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		service = new InformationService(redisTemplate, new NoopJdbcTemplate(row),
+			new ConcurrencyGuards(meterRegistry, 10, 64, 2, 2000), meterRegistry, "device-3", 60_000);
+	}
+
+	@Benchmark
+	public Map<String, Object> getInformation() {
+		if (!"local".equals(cache)) {
+			service.evictLocal();
+		}
+		return service.getInformation();
+	}
+}
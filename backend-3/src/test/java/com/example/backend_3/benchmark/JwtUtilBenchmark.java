@@ -0,0 +1,39 @@
+package com.example.backend_3.benchmark;
+
+import com.example.backend_3.auth.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token verification as done by JwtFilter, with the verified-token cache disabled (0) and enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+	@Param({ "0", "10000" })
+	public int cacheMaxSize;
+
+	private JwtUtil jwtUtil;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		jwtUtil = new JwtUtil();
+		ReflectionTestUtils.setField(jwtUtil, "secret", "benchmark-secret-benchmark-secret-benchmark-secret");
+		ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", cacheMaxSize);
+		jwtUtil.init();
+		token = jwtUtil.generateToken("admin");
+	}
+
+	@Benchmark
+	public String extractUsername() {
+		return jwtUtil.extractUsername(token);
+	}
+}
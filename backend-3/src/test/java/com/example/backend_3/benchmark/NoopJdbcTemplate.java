@@ -0,0 +1,35 @@
+package com.example.backend_3.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Stands in for the database: batch inserts are discarded and single-row queries return a fixed row.
+ */
+class NoopJdbcTemplate extends JdbcTemplate {
+
+	private final Map<String, Object> row;
+
+	NoopJdbcTemplate(Map<String, Object> row) {
+		this.row = row;
+	}
+
+	@Override
+	public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+			ParameterizedPreparedStatementSetter<T> pss) {
+		return new int[0][];
+	}
+
+	@Override
+	public Map<String, Object> queryForMap(String sql) {
+		return row;
+	}
+
+	@Override
+	public Map<String, Object> queryForMap(String sql, Object... args) {
+		return row;
+	}
+}
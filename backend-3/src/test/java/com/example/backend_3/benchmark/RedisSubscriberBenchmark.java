@@ -0,0 +1,86 @@
+package com.example.backend_3.benchmark;
+
+import com.example.backend_3.models.SensorReading;
+import com.example.backend_3.redis.RedisSubscriber;
+import com.example.backend_3.redis.SensorBinaryFormat;
+import com.example.backend_3.redis.SensorReadingParser;
+import com.example.backend_3.service.RecentReadingsStore;
+import com.example.backend_3.service.SensorDataWriter;
+import com.example.backend_3.service.SensorRegistry;
+import com.example.backend_3.service.SensorRollupService;
+import com.example.backend_3.service.SensorSnapshotService;
+import com.example.backend_3.sse.SensorEventStream;
+import com.example.backend_3.websocket.DataWebSocketHandler;
+import com.example.backend_3.websocket.WebSocketFanout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.Message;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode-only and full onMessage cost (registry, ring buffer, write-behind queue, fan-out to no sessions),
+ * for JSON and {@link SensorBinaryFormat} payloads.
+ * The writer's flusher runs against a no-op JdbcTemplate so the queue keeps draining.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisSubscriberBenchmark {
+
+	@Param({ "json", "binary" })
+	public String format;
+
+	private byte[] body;
+	private Message message;
+	private SensorDataWriter writer;
+	private RedisSubscriber subscriber;
+
+	@Setup
+	public void setUp() {
+		body = "binary".equals(format)
+			? SensorBinaryFormat.encode(42.7, System.currentTimeMillis())
+			: ("{\"value\":42.7,\"timestamp\":" + System.currentTimeMillis() + "}").getBytes(StandardCharsets.UTF_8);
+		message = new DefaultMessage("sensor:temperature".getBytes(StandardCharsets.UTF_8), body);
+
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		writer = new SensorDataWriter(new NoopJdbcTemplate(Map.of()), meterRegistry, 100_000, 500, 100);
+		writer.start();
+		subscriber = new RedisSubscriber(
+			writer,
+			new RecentReadingsStore(3600),
+			new WebSocketFanout(new DataWebSocketHandler(meterRegistry, 5000, 512 * 1024, 50, 20), null, meterRegistry, "local", 10_000, 500),
+			new SensorEventStream(meterRegistry, 1000, 1_800_000, 250, 15_000, 256, 4),
+			new SensorRegistry(meterRegistry),
+			new SensorSnapshotService(),
+			new SensorRollupService(new NoopJdbcTemplate(Map.of()), meterRegistry, true, 500, 60_000),
+			meterRegistry,
+			"device-3",
+			10_000,
+			0
+		);
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		writer.stop();
+	}
+
+	@Benchmark
+	public SensorReading parse() throws IOException {
+		return SensorReadingParser.parse("device-3", "temperature", body);
+	}
+
+	@Benchmark
+	public void onMessage() {
+		subscriber.onMessage(message, null);
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.backend_3.benchmark;
+
+import com.example.backend_3.websocket.DataWebSocketHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One reading broadcast to N connected sessions that accept frames instantly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketBroadcastBenchmark {
+
+	@Param({ "1", "100", "1000" })
+	public int sessions;
+
+	private DataWebSocketHandler handler;
+	private byte[] frame;
+
+	@Setup
+	public void setUp() throws Exception {
+		// No max-hz, so sessions are unthrottled and every broadcast is a send
+		handler = new DataWebSocketHandler(new SimpleMeterRegistry(), 5000, 512 * 1024, 50, 0);
+		for (int i = 0; i < sessions; i++) {
+			handler.afterConnectionEstablished(new BenchmarkWebSocketSession("session-" + i));
+		}
+		frame = "{\"temperature\":{\"value\":42.7,\"timestamp\":1700000000000}}".getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public void broadcast() {
+		handler.broadcast("device-3", "temperature", frame);
+	}
+}
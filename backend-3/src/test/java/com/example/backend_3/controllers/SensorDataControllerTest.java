@@ -0,0 +1,108 @@
+package com.example.backend_3.controllers;
+
+import com.example.backend_3.redis.RedisSubscriber;
+import com.example.backend_3.service.ConcurrencyGuards;
+import com.example.backend_3.service.RecentReadingsStore;
+import com.example.backend_3.service.SensorExportService;
+import com.example.backend_3.service.SensorExportService.Format;
+import com.example.backend_3.service.SensorHistoryService;
+import com.example.backend_3.service.SensorSnapshotService;
+import com.example.backend_3.sse.SensorEventStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class SensorDataControllerTest {
+
+	private static final String CSV = "timestamp,value\n1000,20.0\n";
+
+	private final ConcurrencyGuards guards = new ConcurrencyGuards(new SimpleMeterRegistry(), 10, 64, 1, 100);
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		RedisSubscriber redisSubscriber = mock(RedisSubscriber.class);
+		when(redisSubscriber.getDefaultDevice()).thenReturn("device-3");
+		SensorExportService exports = mock(SensorExportService.class);
+		doAnswer(invocation -> {
+			invocation.<OutputStream>getArgument(5).write(CSV.getBytes(StandardCharsets.UTF_8));
+			return 1L;
+		}).when(exports).export(eq("device-3"), eq("temperature"), anyLong(), anyLong(), any(Format.class), any(OutputStream.class));
+
+		mvc = MockMvcBuilders.standaloneSetup(new SensorDataController(redisSubscriber, mock(SensorHistoryService.class),
+			mock(RecentReadingsStore.class), mock(SensorEventStream.class), mock(SensorSnapshotService.class), exports, guards, 30_000, 600_000)).build();
+	}
+
+	@Test
+	void gzipsExportWhenTheClientAcceptsIt() throws Exception {
+		MockHttpServletResponse response = export(get("/api/data/temperature/export?from=0&to=5000")
+			.header("Accept-Encoding", "deflate, gzip;q=0.8"));
+
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		assertEquals("attachment; filename=\"device-3-temperature-0-5000.csv\"", response.getHeader("Content-Disposition"));
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+			assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	void sendsPlainTextWhenGzipIsNotAccepted() throws Exception {
+		for (String acceptEncoding : new String[] { null, "identity", "gzip;q=0", "br, gzip; q=0.0" }) {
+			MockHttpServletRequestBuilder request = get("/api/data/temperature/export?from=0&to=5000");
+			if (acceptEncoding != null) {
+				request.header("Accept-Encoding", acceptEncoding);
+			}
+
+			MockHttpServletResponse response = export(request);
+
+			assertNull(response.getHeader("Content-Encoding"), acceptEncoding);
+			assertEquals(CSV, response.getContentAsString(StandardCharsets.UTF_8), acceptEncoding);
+		}
+	}
+
+	@Test
+	void onlyTheExportGetsTheExportTimeout() throws Exception {
+		MvcResult result = mvc.perform(get("/api/data/temperature/export?from=0&to=5000")).andReturn();
+
+		assertEquals(600_000, result.getRequest().getAsyncContext().getTimeout());
+		mvc.perform(asyncDispatch(result));
+	}
+
+	@Test
+	void rejectsUnknownFormatWithoutTakingAPermit() throws Exception {
+		MockHttpServletResponse response = export(get("/api/data/temperature/export?format=xml"));
+
+		assertEquals(400, response.getStatus());
+		assertEquals("{\"error\":\"Unsupported format 'xml', use csv or ndjson\"}", response.getContentAsString());
+		assertEquals(1, guards.export().getAvailablePermits());
+	}
+
+	private MockHttpServletResponse export(MockHttpServletRequestBuilder request) throws Exception {
+		MvcResult result = mvc.perform(request).andReturn();
+		MockHttpServletResponse response = mvc.perform(asyncDispatch(result)).andReturn().getResponse();
+		assertEquals(1, guards.export().getAvailablePermits());
+		return response;
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.backend_3.redis;
+
+import com.example.backend_3.service.RecentReadingsStore;
+import com.example.backend_3.service.SensorDataWriter;
+import com.example.backend_3.service.SensorRegistry;
+import com.example.backend_3.service.SensorRollupService;
+import com.example.backend_3.service.SensorSnapshotService;
+import com.example.backend_3.sse.SensorEventStream;
+import com.example.backend_3.websocket.WebSocketFanout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class RedisSubscriberTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void tagsReceivedCountersPerDeviceOnlyUpToTheLimit() {
+		RedisSubscriber subscriber = subscriber(1);
+
+		ingest(subscriber, "sensor:temperature");
+		ingest(subscriber, "sensor:humidity");
+		ingest(subscriber, "sensor:device-7:temperature");
+		ingest(subscriber, "sensor:device-9:temperature");
+
+		assertEquals(Map.of("device-3/temperature", 1.0, "device-3/humidity", 1.0, "other/temperature", 2.0), received());
+	}
+
+	@Test
+	void sharesOneSeriesPerTypeByDefault() {
+		RedisSubscriber subscriber = subscriber(0);
+
+		ingest(subscriber, "sensor:temperature");
+		ingest(subscriber, "sensor:device-7:temperature");
+		ingest(subscriber, "sensor:device-7:humidity");
+
+		assertEquals(Map.of("other/temperature", 2.0, "other/humidity", 1.0), received());
+	}
+
+	private RedisSubscriber subscriber(int maxDeviceTags) {
+		return new RedisSubscriber(mock(SensorDataWriter.class), mock(RecentReadingsStore.class), mock(WebSocketFanout.class),
+			mock(SensorEventStream.class), mock(SensorRegistry.class), mock(SensorSnapshotService.class), mock(SensorRollupService.class),
+			meterRegistry, "device-3", 100, maxDeviceTags);
+	}
+
+	private static void ingest(RedisSubscriber subscriber, String channel) {
+		subscriber.ingest(channel.getBytes(StandardCharsets.UTF_8),
+			"{\"value\":1,\"timestamp\":1700000000000}".getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Map<String, Double> received() {
+		return meterRegistry.get("sensor.messages.received").counters().stream().collect(Collectors.toMap(
+			counter -> counter.getId().getTag("device") + "/" + counter.getId().getTag("type"), Counter::count));
+	}
+}
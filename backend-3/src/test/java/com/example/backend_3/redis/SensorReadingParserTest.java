@@ -0,0 +1,127 @@
+package com.example.backend_3.redis;
+
+import com.example.backend_3.models.SensorReading;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SensorReadingParserTest {
+
+	@Test
+	void parsesValueAndNormalizesSecondsToMillis() throws Exception {
+		byte[] body = "{\"value\":21.5,\"unit\":{\"name\":\"C\"},\"timestamp\":1700000000.25}".getBytes(StandardCharsets.UTF_8);
+
+		assertEquals(new SensorReading("device-3", "temperature", 21.5, 1700000000250L),
+			SensorReadingParser.parse("device-3", "temperature", body));
+	}
+
+	@Test
+	void returnsNullWhenValueIsMissing() throws Exception {
+		assertNull(SensorReadingParser.parse("device-3", "temperature", "{\"timestamp\":1}".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	void rejectsContentAfterTheReadingObject() throws Exception {
+		for (String body : new String[] {
+			"{\"value\":1,\"timestamp\":1700000000000}]]\"garbage",
+			"{\"value\":1,\"timestamp\":1700000000000}{\"value\":2}",
+			"{\"value\":1,\"timestamp\":1700000000000} 42"
+		}) {
+			assertThrows(JsonProcessingException.class,
+				() -> SensorReadingParser.parse("device-3", "temperature", body.getBytes(StandardCharsets.UTF_8)), body);
+		}
+		assertThrows(JsonProcessingException.class, () -> SensorReadingParser.parseBatch("device-3",
+			"{\"readings\":[{\"type\":\"humidity\",\"value\":1,\"timestamp\":1}]}]".getBytes(StandardCharsets.UTF_8)));
+
+		// Trailing whitespace is still one JSON value
+		assertEquals(new SensorReading("device-3", "temperature", 1, 1700000000000L), SensorReadingParser.parse("device-3", "temperature",
+			"{\"value\":1,\"timestamp\":1700000000000}\r\n".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	void parsesBatchAndSkipsIncompleteEntries() throws Exception {
+		byte[] body = ("{\"readings\":[{\"type\":\"temperature\",\"value\":21.5,\"timestamp\":1700000000250},"
+			+ "{\"type\":\"humidity\",\"timestamp\":1},{\"type\":\"voltage\",\"value\":3.3,\"timestamp\":1700000000}],"
+			+ "\"device\":\"device-7\"}").getBytes(StandardCharsets.UTF_8);
+
+		assertEquals(List.of(
+			new SensorReading("device-7", "temperature", 21.5, 1700000000250L),
+			new SensorReading("device-7", "voltage", 3.3, 1700000000000L)
+		), SensorReadingParser.parseBatch("device-3", body));
+	}
+
+	@Test
+	void detectsBinaryRecordsAndRejectsUnknownVersions() throws Exception {
+		byte[] body = SensorBinaryFormat.encode(21.5, 1700000000250L);
+
+		assertEquals(SensorBinaryFormat.LENGTH, body.length);
+		assertEquals(new SensorReading("device-3", "temperature", 21.5, 1700000000250L),
+			SensorReadingParser.parse("device-3", "temperature", body));
+		body[1] = 2;
+		assertNull(SensorReadingParser.parse("device-3", "temperature", body));
+	}
+
+	@Test
+	void prefixesBinaryFrameWithTopic() {
+		SensorChannel channel = newCache().resolve("sensor:device-7:humidity".getBytes(StandardCharsets.UTF_8));
+		ByteBuffer frame = ByteBuffer.wrap(channel.binaryFrame(new SensorReading("device-7", "humidity", 55.0, 1700000000000L)));
+
+		byte[] topic = new byte[frame.getShort()];
+		frame.get(topic);
+		assertEquals("device-7:humidity", new String(topic, StandardCharsets.UTF_8));
+		assertEquals(SensorBinaryFormat.MAGIC, frame.get());
+		assertEquals(SensorBinaryFormat.VERSION, frame.get());
+		assertEquals(1700000000000L, frame.getLong());
+		assertEquals(55.0, frame.getDouble());
+		assertEquals(0, frame.remaining());
+	}
+
+	@Test
+	void resolvesChannelOnceAndSplicesFrame() {
+		SensorChannelCache cache = newCache();
+		SensorChannel channel = cache.resolve("sensor:humidity".getBytes(StandardCharsets.UTF_8));
+
+		assertSame(channel, cache.resolve("sensor:humidity".getBytes(StandardCharsets.UTF_8)));
+		assertEquals("device-3", channel.device());
+		assertEquals("humidity", channel.type());
+		assertEquals("{\"humidity\":{\"value\":1}}",
+			new String(channel.frame("{\"value\":1}".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void resolvesDeviceScopedChannel() {
+		SensorChannel channel = newCache().resolve("sensor:device-7:humidity".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("device-7", channel.device());
+		assertEquals("humidity", channel.type());
+		assertEquals("{\"device-7:humidity\":{\"value\":1}}",
+			new String(channel.frame("{\"value\":1}".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void escapesTopicsInTheFrame() throws Exception {
+		SensorChannel channel = newCache().resolve("sensor:device-\"7\\:hum\nidity".getBytes(StandardCharsets.UTF_8));
+
+		JsonNode frame = new ObjectMapper().readTree(channel.frame("{\"value\":1}".getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(1, frame.size());
+		assertEquals(1, frame.get("device-\"7\\:hum\nidity").get("value").asInt());
+	}
+
+	private static SensorChannelCache newCache() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		return new SensorChannelCache(100, "device-3",
+			(device, type) -> registry.counter("received", "device", device, "type", type));
+	}
+}
@@ -0,0 +1,183 @@
+package com.example.backend_3.redis;
+
+import com.example.backend_3.service.RecentReadingsStore;
+import com.example.backend_3.service.SensorDataWriter;
+import com.example.backend_3.service.SensorRegistry;
+import com.example.backend_3.service.SensorRollupService;
+import com.example.backend_3.service.SensorSnapshotService;
+import com.example.backend_3.sse.SensorEventStream;
+import com.example.backend_3.websocket.WebSocketFanout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the reader thread against mocked Redis commands; each XREADGROUP answers with the next planned batch.
+ */
+class SensorStreamConsumerTest {
+
+	private static final byte[] TEMPERATURE = bytes("sensor:temperature");
+	private static final byte[] HUMIDITY = bytes("sensor:device-7:humidity");
+	private static final byte[] BATCH = bytes(RedisSubscriber.BATCH_CHANNEL);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+	private final RedisConnection connection = mock(RedisConnection.class);
+	private final RedisStreamCommands streamCommands = mock(RedisStreamCommands.class);
+	private final RedisKeyCommands keyCommands = mock(RedisKeyCommands.class);
+	private RedisSubscriber subscriber;
+
+	// Planned XREADGROUP results, and the offset ("0" = own pending entries, ">" = new ones) of every call
+	private final Queue<Object> reads = new ConcurrentLinkedQueue<>();
+	private final List<String> offsets = Collections.synchronizedList(new ArrayList<>());
+	private SensorStreamConsumer consumer;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		when(connectionFactory.getConnection()).thenReturn(connection);
+		when(connection.streamCommands()).thenReturn(streamCommands);
+		when(connection.keyCommands()).thenReturn(keyCommands);
+		when(keyCommands.scan(any(ScanOptions.class))).thenAnswer(invocation -> cursor(List.of(
+			TEMPERATURE, bytes("sensorfoo"), HUMIDITY, BATCH)));
+		when(streamCommands.xReadGroup(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset[].class))).thenAnswer(invocation -> {
+			StreamOffset<byte[]>[] streams = (StreamOffset<byte[]>[]) invocation.getRawArguments()[2];
+			offsets.add(streams[0].getOffset().getOffset());
+			Object next = reads.poll();
+			if (next instanceof RuntimeException e) {
+				throw e;
+			}
+			if (next == null) {
+				Thread.sleep(10);
+				return List.of();
+			}
+			return next;
+		});
+		subscriber = spy(new RedisSubscriber(mock(SensorDataWriter.class), mock(RecentReadingsStore.class), mock(WebSocketFanout.class),
+			mock(SensorEventStream.class), mock(SensorRegistry.class), mock(SensorSnapshotService.class), mock(SensorRollupService.class),
+			meterRegistry, "device-3", 100, 0));
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		if (consumer != null) {
+			consumer.stop();
+		}
+	}
+
+	@Test
+	void createsTheGroupOnEveryStreamAndKeepsExistingOnes() {
+		when(streamCommands.xGroupCreate(aryEq(HUMIDITY), eq("backend"), any(ReadOffset.class))).thenThrow(
+			new RedisSystemException("BUSYGROUP", new RuntimeException("BUSYGROUP Consumer Group name already exists")));
+
+		consumer = start();
+
+		for (byte[] stream : new byte[][] { TEMPERATURE, HUMIDITY, BATCH }) {
+			verify(streamCommands).xGroupCreate(aryEq(stream), eq("backend"), eq(ReadOffset.from("0")));
+		}
+		verify(streamCommands, never()).xGroupCreate(aryEq(bytes("sensorfoo")), any(), any(ReadOffset.class));
+	}
+
+	@Test
+	void replaysItsPendingEntriesBeforeReadingNewOnesAndAcknowledgesEachBatch() {
+		reads.add(List.of(entry(TEMPERATURE, "1-0", "21.5"), entry(TEMPERATURE, "2-0", "21.6"), entry(HUMIDITY, "3-0", "40")));
+		reads.add(List.of());
+		reads.add(List.of(entry(TEMPERATURE, "4-0", "21.7")));
+
+		consumer = start();
+
+		verify(streamCommands, timeout(2000)).xAck(aryEq(TEMPERATURE), eq("backend"), eq(RecordId.of("1-0")), eq(RecordId.of("2-0")));
+		verify(streamCommands, timeout(2000)).xAck(aryEq(HUMIDITY), eq("backend"), eq(RecordId.of("3-0")));
+		verify(streamCommands, timeout(2000)).xAck(aryEq(TEMPERATURE), eq("backend"), eq(RecordId.of("4-0")));
+		assertEquals(List.of("0", "0", ">"), List.copyOf(offsets).subList(0, 3));
+		verify(subscriber).ingest(aryEq(TEMPERATURE), aryEq(bytes("{\"value\":21.7,\"timestamp\":1700000000000}")));
+		assertEquals(4, meterRegistry.get("sensor.stream.acknowledged").counter().count());
+	}
+
+	@Test
+	void acknowledgesPoisonAndTrimmedEntriesInsteadOfRetryingThem() {
+		ByteRecord trimmed = StreamRecords.rawBytes(Map.of()).withStreamKey(TEMPERATURE).withId(RecordId.of("2-0"));
+		reads.add(List.of(StreamRecords.rawBytes(Map.of(bytes("data"), bytes("{\"value\":1}]]\"garbage")))
+			.withStreamKey(TEMPERATURE).withId(RecordId.of("1-0")), trimmed));
+
+		consumer = start();
+
+		verify(streamCommands, timeout(2000)).xAck(aryEq(TEMPERATURE), eq("backend"), eq(RecordId.of("1-0")), eq(RecordId.of("2-0")));
+		verify(subscriber).ingest(any(), any());
+		assertEquals(1, meterRegistry.get("sensor.parse.failures").counter().count());
+	}
+
+	@Test
+	void reconnectsAfterAFailedReadAndReplaysPendingEntriesAgain() {
+		reads.add(List.of());
+		reads.add(new RedisSystemException("connection reset", new RuntimeException()));
+		reads.add(List.of(entry(TEMPERATURE, "1-0", "21.5")));
+
+		consumer = start();
+
+		verify(streamCommands, timeout(5000)).xAck(aryEq(TEMPERATURE), eq("backend"), eq(RecordId.of("1-0")));
+		// Once after discovering the streams, once for the failed reader connection
+		verify(connection, times(2)).close();
+		assertEquals(List.of("0", ">", "0"), List.copyOf(offsets).subList(0, 3));
+	}
+
+	private SensorStreamConsumer start() {
+		SensorStreamConsumer started = new SensorStreamConsumer(connectionFactory, subscriber, meterRegistry, "backend", "node-1", "0", 500, 50);
+		started.start();
+		return started;
+	}
+
+	private static ByteRecord entry(byte[] stream, String id, String value) {
+		return StreamRecords.rawBytes(Map.of(bytes("data"), bytes("{\"value\":" + value + ",\"timestamp\":1700000000000}")))
+			.withStreamKey(stream).withId(RecordId.of(id));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Cursor<byte[]> cursor(List<byte[]> keys) {
+		Iterator<byte[]> iterator = keys.iterator();
+		Cursor<byte[]> cursor = mock(Cursor.class);
+		when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+		when(cursor.next()).thenAnswer(invocation -> iterator.next());
+		return cursor;
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.exception.ConcurrencyLimitException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyGuardTest {
+
+	@Test
+	void failsFastOnceThePermitsAreTakenAndTheTimeoutPasses() {
+		ConcurrencyGuard guard = new ConcurrencyGuard("database", 1, 50);
+		ConcurrencyGuard.Permit held = guard.acquire();
+
+		long started = System.nanoTime();
+		ConcurrencyLimitException e = assertThrows(ConcurrencyLimitException.class, () -> guard.call(() -> "never"));
+
+		assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals("Too many concurrent database requests, try again later", e.getMessage());
+		held.close();
+		assertEquals("ran", guard.call(() -> "ran"));
+	}
+
+	@Test
+	void releasesThePermitWhenTheActionThrows() {
+		ConcurrencyGuard guard = new ConcurrencyGuard("database", 1, 0);
+
+		assertThrows(IllegalStateException.class, () -> guard.run(() -> {
+			throw new IllegalStateException("boom");
+		}));
+
+		assertEquals(1, guard.getAvailablePermits());
+	}
+
+	@Test
+	void waitingCallersGetThePermitWithinTheTimeout() throws Exception {
+		ConcurrencyGuard guard = new ConcurrencyGuard("redis", 1, 5000);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch finish = new CountDownLatch(1);
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> guard.run(() -> {
+			running.countDown();
+			await(finish);
+		}));
+		running.await();
+
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> guard.call(() -> "second"));
+		while (guard.getQueueLength() == 0) {
+			Thread.onSpinWait();
+		}
+		finish.countDown();
+
+		assertEquals("second", second.get(5, TimeUnit.SECONDS));
+		first.get(5, TimeUnit.SECONDS);
+		assertEquals(1, guard.getAvailablePermits());
+	}
+
+	@Test
+	void releasesAnAcquiredPermitOnlyOnce() {
+		ConcurrencyGuard guard = new ConcurrencyGuard("export", 2, 0);
+		ConcurrencyGuard.Permit first = guard.acquire();
+		ConcurrencyGuard.Permit second = guard.acquire();
+		assertThrows(ConcurrencyLimitException.class, guard::acquire);
+
+		first.close();
+		first.close();
+
+		assertEquals(1, guard.getAvailablePermits());
+		second.close();
+		assertEquals(2, guard.getAvailablePermits());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.exception.DeviceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the service behind its Spring proxy against H2, so the transaction boundaries are the real ones.
+ */
+@SpringJUnitConfig(InformationServiceTest.Config.class)
+class InformationServiceTest {
+
+	@Configuration
+	// Class-based proxies like Spring Boot uses, the service also implements MessageListener
+	@EnableTransactionManagement(proxyTargetClass = true)
+	static class Config {
+
+		@Bean
+		DataSource dataSource() {
+			return new DriverManagerDataSource("jdbc:h2:mem:information;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_UPPER=false");
+		}
+
+		@Bean
+		JdbcTemplate jdbcTemplate(DataSource dataSource) {
+			// Spied to count the statements an update issues
+			return spy(new JdbcTemplate(dataSource));
+		}
+
+		@Bean
+		PlatformTransactionManager transactionManager(DataSource dataSource) {
+			return new DataSourceTransactionManager(dataSource);
+		}
+
+		@Bean
+		@SuppressWarnings("unchecked")
+		StringRedisTemplate redisTemplate() {
+			StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+			when(redisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+			return redisTemplate;
+		}
+
+		@Bean
+		InformationService informationService(StringRedisTemplate redisTemplate, JdbcTemplate jdbcTemplate) {
+			SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+			return new InformationService(redisTemplate, jdbcTemplate,
+				new ConcurrencyGuards(meterRegistry, 10, 64, 2, 2000), meterRegistry, "device-3", 60_000);
+		}
+	}
+
+	private static final byte[] CHANNEL = InformationService.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+	@Autowired
+	private InformationService service;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS information");
+		jdbcTemplate.execute("""
+			CREATE TABLE information (
+				id BIGINT AUTO_INCREMENT PRIMARY KEY, deviceId VARCHAR(64) UNIQUE,
+				deviceClass VARCHAR(64), manufacturer VARCHAR(64), manufacturerUri VARCHAR(64), model VARCHAR(64),
+				productCode INT, hardwareRevision VARCHAR(64), softwareRevision VARCHAR(64), serialNumber VARCHAR(64),
+				productInstanceUri VARCHAR(64), webshopUri VARCHAR(64), sysDescr VARCHAR(64), sysName VARCHAR(64),
+				sysContact VARCHAR(64), sysLocation VARCHAR(64), user_id BIGINT)
+			""");
+		// The legacy row without a deviceId belongs to the default device
+		jdbcTemplate.update("INSERT INTO information (deviceId, model, sysLocation) VALUES (NULL, 'IOT-3000', 'Lab')");
+		jdbcTemplate.update("INSERT INTO information (deviceId, model, sysLocation) VALUES ('device-7', 'IOT-7000', 'Hall')");
+		service.evictLocal();
+		clearInvocations(redisTemplate.opsForValue(), redisTemplate, jdbcTemplate);
+	}
+
+	@Test
+	void updateWithoutDeviceRefreshesTheCachesAfterCommit() {
+		service.updateInformation(Map.of("sysLocation", "Roof"));
+
+		assertEquals("Roof", jdbcTemplate.queryForObject("SELECT sysLocation FROM information WHERE deviceId IS NULL", String.class));
+		verify(redisTemplate.opsForValue()).set(anyString(), contains("\"sysLocation\":\"Roof\""));
+		verify(redisTemplate).convertAndSend(eq(InformationService.INVALIDATION_CHANNEL), endsWith(" information:device-3"));
+		// Served from the refreshed near-cache, Redis is not asked again
+		assertEquals("Roof", service.getInformation().get("sysLocation"));
+		verify(redisTemplate.opsForValue(), never()).get(anyString());
+	}
+
+	@Test
+	void skipsItsOwnInvalidationButHonoursOtherNodes() {
+		service.updateInformation(Map.of("sysLocation", "Roof"));
+		ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+		verify(redisTemplate).convertAndSend(eq(InformationService.INVALIDATION_CHANNEL), published.capture());
+
+		// The node hears its own message back, the refreshed entry stays
+		service.onMessage(new DefaultMessage(CHANNEL, published.getValue().getBytes(StandardCharsets.UTF_8)), null);
+		assertEquals("Roof", service.getInformation().get("sysLocation"));
+		verify(redisTemplate.opsForValue(), never()).get(anyString());
+
+		service.onMessage(new DefaultMessage(CHANNEL, "other-node information:device-3".getBytes(StandardCharsets.UTF_8)), null);
+		assertEquals("Roof", service.getInformation().get("sysLocation"));
+		verify(redisTemplate.opsForValue()).get("information:device-3");
+	}
+
+	@Test
+	void appliesAllFieldsInOneUpdate() {
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("model", "IOT-3001");
+		fields.put("productCode", 3001);
+		fields.put("sysLocation", "Roof");
+
+		service.updateInformation(fields);
+
+		assertEquals(1, mockingDetails(jdbcTemplate).getInvocations().stream()
+			// The public update(sql, args...) the service calls, not the overloads it delegates to
+			.filter(invocation -> invocation.getMethod().getName().equals("update")
+				&& invocation.getRawArguments().length == 2 && invocation.getRawArguments()[1] instanceof Object[])
+			.count());
+		assertEquals(Map.of("model", "IOT-3001", "productCode", 3001, "sysLocation", "Roof"), jdbcTemplate.queryForMap(
+			"SELECT model, productCode, sysLocation FROM information WHERE deviceId IS NULL"));
+	}
+
+	@Test
+	void rejectsFieldsOutsideTheEntityColumns() {
+		for (String field : new String[] { "id", "deviceId", "user", "sysLocation = 'x', model" }) {
+			assertThrows(IllegalArgumentException.class, () -> service.updateInformation(Map.of(field, "x")));
+		}
+
+		assertEquals("Lab", jdbcTemplate.queryForObject("SELECT sysLocation FROM information WHERE deviceId IS NULL", String.class));
+		verifyNoInteractions(redisTemplate);
+	}
+
+	@Test
+	void updatesOnlyTheAddressedDevice() {
+		service.updateInformation("device-7", Map.of("sysLocation", "Roof"));
+
+		assertEquals("Roof", jdbcTemplate.queryForObject("SELECT sysLocation FROM information WHERE deviceId = 'device-7'", String.class));
+		assertEquals("Lab", jdbcTemplate.queryForObject("SELECT sysLocation FROM information WHERE deviceId IS NULL", String.class));
+		verify(redisTemplate.opsForValue()).set(anyString(), contains("\"model\":\"IOT-7000\""));
+		verify(redisTemplate).convertAndSend(eq(InformationService.INVALIDATION_CHANNEL), endsWith(" information:device-7"));
+	}
+
+	@Test
+	void leavesCachesAloneWhenTheDeviceDoesNotExist() {
+		assertThrows(DeviceNotFoundException.class, () -> service.updateInformation("device-9", Map.of("sysLocation", "Roof")));
+
+		verify(redisTemplate.opsForValue(), never()).set(anyString(), any());
+		verify(redisTemplate, never()).convertAndSend(anyString(), any());
+	}
+}
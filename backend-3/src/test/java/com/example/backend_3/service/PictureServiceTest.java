@@ -0,0 +1,27 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.repositories.PictureRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class PictureServiceTest {
+
+	@Test
+	void servesPictureAddedAfterAMiss(@TempDir Path directory) throws Exception {
+		PictureService pictures = new PictureService(mock(PictureRepository.class), new DefaultResourceLoader(),
+			directory.toUri().toString(), "device-3.jpg");
+		assertTrue(pictures.getDefaultPicture().isEmpty());
+
+		Files.write(directory.resolve("device-3.jpg"), new byte[] { 1, 2, 3 });
+
+		assertEquals(3, pictures.getDefaultPicture().orElseThrow().length());
+	}
+}
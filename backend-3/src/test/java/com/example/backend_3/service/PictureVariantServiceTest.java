@@ -0,0 +1,131 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.service.PictureService.StoredPicture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PictureVariantServiceTest {
+
+	private static final int CACHED_SIZE = 12_400;
+	private static final long MAX_BYTES = 25_000;
+
+	@TempDir
+	private Path cacheDir;
+
+	@Test
+	void resizesOnceAndServesTheCachedFileAfterwards() throws Exception {
+		PictureVariantService variants = start(MAX_BYTES);
+		StoredPicture source = png("src", 64, 32);
+
+		StoredPicture variant = variants.getVariant(source, 16, "jpg");
+		FileTime generatedAt = Files.getLastModifiedTime(cacheDir.resolve("src-w16.jpg"));
+		BufferedImage image = ImageIO.read(cacheDir.resolve("src-w16.jpg").toFile());
+
+		assertEquals(MediaType.IMAGE_JPEG, variant.contentType());
+		assertEquals("\"src-w16.jpg\"", variant.etag());
+		assertEquals(16, image.getWidth());
+		assertEquals(8, image.getHeight());
+		assertEquals(variant.length(), variants.getVariant(source, 16, "jpeg").length());
+		assertEquals(generatedAt, Files.getLastModifiedTime(cacheDir.resolve("src-w16.jpg")));
+	}
+
+	@Test
+	void servesTheSourceWhenNothingChangesAndRejectsBadRequests() throws Exception {
+		PictureVariantService variants = start(MAX_BYTES);
+		StoredPicture source = png("src", 8, 8);
+
+		assertSame(source, variants.getVariant(source, null, null));
+		assertSame(source, variants.getVariant(source, null, "png"));
+		assertThrows(IllegalArgumentException.class, () -> variants.getVariant(source, null, "gif"));
+		assertThrows(IllegalArgumentException.class, () -> variants.getVariant(source, 0, null));
+		assertThrows(IllegalArgumentException.class, () -> variants.getVariant(source, 2049, null));
+	}
+
+	@Test
+	void evictsTheLeastRecentlyServedVariantsBeyondTheSizeLimit() throws Exception {
+		// Left behind by an earlier run, oldest first; only two of them fit
+		cached("a-w10.jpg", 1);
+		cached("b-w10.jpg", 2);
+		cached("c-w10.jpg", 3);
+		PictureVariantService variants = start(MAX_BYTES);
+		assertEquals(Set.of("b-w10.jpg", "c-w10.jpg"), files());
+
+		// Serving b makes c the least recently used one
+		variants.getVariant(jpeg("b"), 10, "jpg");
+		variants.getVariant(png("src", 64, 64), 32, "jpg");
+
+		assertEquals(Set.of("b-w10.jpg", "src-w32.jpg"), files());
+		assertTrue(directorySize() <= MAX_BYTES);
+	}
+
+	@Test
+	void keepsTheNewestVariantEvenWhenItAloneExceedsTheLimit() throws Exception {
+		cached("a-w10.jpg", 1);
+		PictureVariantService variants = start(100);
+		assertEquals(Set.of("a-w10.jpg"), files());
+
+		variants.getVariant(png("src", 64, 64), 32, "jpg");
+
+		assertEquals(Set.of("src-w32.jpg"), files());
+	}
+
+	private PictureVariantService start(long maxBytes) throws Exception {
+		PictureVariantService variants = new PictureVariantService(cacheDir.toString(), maxBytes, 2048, 0.8f);
+		variants.init();
+		return variants;
+	}
+
+	private void cached(String name, long ageOrder) throws Exception {
+		Path file = Files.write(cacheDir.resolve(name), new byte[CACHED_SIZE]);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(1_700_000_000_000L + ageOrder * 1000));
+	}
+
+	// Noise, so the encoded variants are not trivially small
+	private static StoredPicture png(String hash, int width, int height) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(42);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return new StoredPicture(new ByteArrayResource(out.toByteArray()), MediaType.IMAGE_PNG, out.size(), 0, hash, "\"" + hash + "\"");
+	}
+
+	// Only its hash matters, the variant is already cached
+	private static StoredPicture jpeg(String hash) {
+		return new StoredPicture(new ByteArrayResource(new byte[0]), MediaType.IMAGE_JPEG, 0, 0, hash, "\"" + hash + "\"");
+	}
+
+	private Set<String> files() throws Exception {
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			return files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+		}
+	}
+
+	private long directorySize() throws Exception {
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			return files.mapToLong(file -> file.toFile().length()).sum();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorDataWriterTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private SensorDataWriter writer;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:writer;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_UPPER=false"));
+		jdbcTemplate.execute("DROP ALL OBJECTS");
+		jdbcTemplate.execute("CREATE TABLE SensorData (id BIGINT AUTO_INCREMENT PRIMARY KEY, deviceId VARCHAR(64), sensorType VARCHAR(64), data_value DOUBLE, timestamp BIGINT)");
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		if (writer != null) {
+			writer.stop();
+		}
+	}
+
+	@Test
+	void flushesFullBatchesWithoutWaitingForTheInterval() throws InterruptedException {
+		writer = start(100, 3, 60_000);
+		submit(7);
+
+		await(() -> writer.getWrittenCount() == 6);
+		Thread.sleep(300);
+
+		// The seventh reading waits for a full batch or the interval
+		assertEquals(6, writer.getWrittenCount());
+		assertEquals(6, rows());
+	}
+
+	@Test
+	void flushesPartialBatchesOnceTheIntervalElapsed() {
+		writer = start(100, 500, 200);
+		submit(2);
+
+		await(() -> writer.getWrittenCount() == 2);
+		assertEquals(2, rows());
+	}
+
+	@Test
+	void dropsReadingsOnceTheBufferIsFull() {
+		writer = new SensorDataWriter(jdbcTemplate, new SimpleMeterRegistry(), 2, 500, 1000);
+
+		assertTrue(writer.submit(reading(1)));
+		assertTrue(writer.submit(reading(2)));
+		assertFalse(writer.submit(reading(3)));
+
+		assertEquals(2, writer.getAcceptedCount());
+		assertEquals(1, writer.getDroppedCount());
+		assertEquals(2, writer.getQueueSize());
+		writer = null;
+	}
+
+	@Test
+	void writesEverythingBufferedOnStop() throws InterruptedException {
+		writer = start(100, 3, 60_000);
+		submit(8);
+		// Two full batches written, the last two readings held by the flusher while it waits for more
+		await(() -> writer.getWrittenCount() == 6 && writer.getQueueSize() == 0);
+
+		long started = System.nanoTime();
+		writer.stop();
+
+		assertTrue(System.nanoTime() - started < 5_000_000_000L, "stop waited for the flush interval");
+		assertEquals(8, writer.getWrittenCount());
+		assertEquals(0, writer.getFailedCount());
+		assertEquals(8, rows());
+		writer = null;
+	}
+
+	private SensorDataWriter start(int queueCapacity, int batchSize, long flushIntervalMillis) {
+		SensorDataWriter started = new SensorDataWriter(jdbcTemplate, new SimpleMeterRegistry(), queueCapacity, batchSize, flushIntervalMillis);
+		started.start();
+		return started;
+	}
+
+	private void submit(int count) {
+		for (int i = 1; i <= count; i++) {
+			assertTrue(writer.submit(reading(i)));
+		}
+	}
+
+	private static SensorReading reading(int i) {
+		return new SensorReading("device-3", "temperature", i, i * 1000L);
+	}
+
+	private int rows() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SensorData", Integer.class);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+}
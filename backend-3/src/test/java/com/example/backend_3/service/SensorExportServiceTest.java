@@ -0,0 +1,91 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.service.SensorExportService.Format;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorExportServiceTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private SensorExportService exports;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:export;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_UPPER=false"));
+		jdbcTemplate.execute("DROP ALL OBJECTS");
+		jdbcTemplate.execute("CREATE TABLE SensorData (id BIGINT AUTO_INCREMENT PRIMARY KEY, deviceId VARCHAR(64), sensorType VARCHAR(64), data_value DOUBLE, timestamp BIGINT)");
+		insert("device-3", "temperature", 21.5, 2000);
+		insert("device-3", "temperature", 20.0, 1000);
+		insert("device-3", "temperature", Double.NaN, 3000);
+		// Outside the range or another sensor
+		insert("device-3", "temperature", 99.0, 4000);
+		insert("device-3", "humidity", 40.0, 1500);
+		insert("device-7", "temperature", 10.0, 1500);
+		exports = new SensorExportService(jdbcTemplate, new SimpleMeterRegistry(), 2, 0);
+	}
+
+	@Test
+	void writesCsvWithHeaderInTimestampOrder() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertEquals(3, exports.export("device-3", "temperature", 1000, 4000, Format.CSV, out));
+		assertEquals("timestamp,value\n1000,20.0\n2000,21.5\n3000,NaN\n", out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void writesOneJsonObjectPerLineWithNullForNonFiniteValues() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		exports.export("device-3", "temperature", 1000, 4000, Format.NDJSON, out);
+
+		assertEquals("""
+			{"timestamp":1000,"value":20.0}
+			{"timestamp":2000,"value":21.5}
+			{"timestamp":3000,"value":null}
+			""", out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void abortsWhenAWriteToTheClientStalls() {
+		SensorExportService stalling = new SensorExportService(jdbcTemplate, new SimpleMeterRegistry(), 2, 10);
+		// Stands in for a client whose receive window stays full
+		OutputStream out = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		IOException e = assertThrows(IOException.class, () -> stalling.export("device-3", "temperature", 1000, 4000, Format.CSV, out));
+		assertTrue(e.getMessage().startsWith("Client stopped reading for "), e.getMessage());
+	}
+
+	@Test
+	void parsesFormatsCaseInsensitively() {
+		assertEquals(Format.CSV, Format.parse("CSV"));
+		assertEquals(Format.NDJSON, Format.parse("ndjson"));
+		assertEquals("application/x-ndjson;charset=UTF-8", Format.NDJSON.mediaType().toString());
+		assertThrows(IllegalArgumentException.class, () -> Format.parse("xml"));
+	}
+
+	private void insert(String device, String type, double value, long timestamp) {
+		jdbcTemplate.update("INSERT INTO SensorData (deviceId, sensorType, data_value, timestamp) VALUES (?, ?, ?, ?)",
+			device, type, value, timestamp);
+	}
+}
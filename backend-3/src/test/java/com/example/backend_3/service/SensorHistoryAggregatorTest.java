@@ -0,0 +1,31 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorHistoryBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SensorHistoryAggregatorTest {
+
+	@Test
+	void aggregatesReadingsIntoEpochAlignedBuckets() {
+		SensorHistoryAggregator aggregator = new SensorHistoryAggregator(1000);
+		aggregator.add(1500, 10.0);
+		aggregator.add(1700, 30.0);
+		aggregator.add(1900, 20.0);
+		aggregator.add(3100, 5.0);
+
+		List<SensorHistoryBucket> buckets = aggregator.finish();
+
+		assertEquals(2, buckets.size());
+		assertEquals(new SensorHistoryBucket(1000, 3, 10.0, 30.0, 20.0, 20.0), buckets.get(0));
+		assertEquals(new SensorHistoryBucket(3000, 1, 5.0, 5.0, 5.0, 5.0), buckets.get(1));
+	}
+
+	@Test
+	void returnsNoBucketsWithoutReadings() {
+		assertEquals(List.of(), new SensorHistoryAggregator(1000).finish());
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorHistoryBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SensorHistoryServiceTest {
+
+	private static final long HOUR = 3_600_000;
+	// A whole hour a few days back, so every bucket of the test is complete
+	private static final long START = (System.currentTimeMillis() / HOUR - 72) * HOUR;
+
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:history;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_UPPER=false"));
+		jdbcTemplate.execute("DROP ALL OBJECTS");
+		jdbcTemplate.execute("CREATE TABLE SensorData (id BIGINT AUTO_INCREMENT PRIMARY KEY, deviceId VARCHAR(64), sensorType VARCHAR(64), data_value DOUBLE, timestamp BIGINT)");
+		jdbcTemplate.execute("""
+			CREATE TABLE SensorRollupHour (id BIGINT AUTO_INCREMENT PRIMARY KEY, deviceId VARCHAR(64), sensorType VARCHAR(64), bucketStart BIGINT,
+				sample_count BIGINT, min_value DOUBLE, max_value DOUBLE, sum_value DOUBLE, last_value DOUBLE, last_timestamp BIGINT,
+				UNIQUE (deviceId, sensorType, bucketStart))
+			""");
+		jdbcTemplate.execute("CREATE TABLE SensorRollupCoverage (id INT PRIMARY KEY, coveredFrom BIGINT)");
+	}
+
+	@Test
+	void readsHistoryFromBeforeRollupsStartedFromRawRows() {
+		// Rollups were enabled half way through the third hour, the raw rows cover all four
+		jdbcTemplate.update("INSERT INTO SensorRollupCoverage (id, coveredFrom) VALUES (1, ?)", START + 2 * HOUR + HOUR / 2);
+		for (int hour = 0; hour < 4; hour++) {
+			jdbcTemplate.update("INSERT INTO SensorData (deviceId, sensorType, data_value, timestamp) VALUES ('device-3', 'temperature', ?, ?)",
+				hour, START + hour * HOUR);
+		}
+		jdbcTemplate.update("INSERT INTO SensorRollupHour (deviceId, sensorType, bucketStart, sample_count, min_value, max_value, sum_value, last_value, last_timestamp)"
+			+ " VALUES ('device-3', 'temperature', ?, 2, 10, 20, 30, 20, ?)", START + 3 * HOUR, START + 3 * HOUR + 1000);
+
+		SensorRollupService rollups = new SensorRollupService(jdbcTemplate, new SimpleMeterRegistry(), true, 500, 60_000);
+		rollups.flush();
+		SensorHistoryService history = new SensorHistoryService(jdbcTemplate,
+			new ConcurrencyGuards(new SimpleMeterRegistry(), 10, 64, 2, 2000), rollups, 1000, 5000);
+
+		assertEquals(START + 2 * HOUR + HOUR / 2, rollups.getCoveredFrom());
+		assertEquals(List.of(
+			new SensorHistoryBucket(START, 1, 0, 0, 0, 0),
+			new SensorHistoryBucket(START + HOUR, 1, 1, 1, 1, 1),
+			new SensorHistoryBucket(START + 2 * HOUR, 1, 2, 2, 2, 2),
+			new SensorHistoryBucket(START + 3 * HOUR, 2, 10, 20, 15, 20)
+		), history.getHistory("device-3", "temperature", START, START + 4 * HOUR, HOUR));
+	}
+}
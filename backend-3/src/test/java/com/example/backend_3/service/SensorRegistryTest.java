@@ -0,0 +1,50 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorRegistryTest {
+
+	@Test
+	void discoversDevicesAndSensorTypesFromMessages() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		SensorRegistry registry = new SensorRegistry(meterRegistry);
+
+		registry.recordMessage("device-7", "humidity");
+		registry.recordMessage("device-3", "temperature");
+		registry.recordMessage("device-3", "humidity");
+		registry.recordMessage("device-3", "temperature");
+
+		assertEquals(List.of("device-3", "device-7"), registry.getDevices());
+		assertEquals(List.of("device-3:humidity", "device-3:temperature", "device-7:humidity"),
+			registry.getSensors().stream().map(info -> info.device() + ":" + info.type()).toList());
+		assertEquals(List.of(1L, 2L), registry.getSensors("device-3").stream().map(SensorInfo::messageCount).toList());
+		assertEquals(List.of(), registry.getSensors("device-9"));
+		assertEquals(3, registry.getSensorCount());
+		assertEquals(3, meterRegistry.get("sensor.types").gauge().value());
+	}
+
+	@Test
+	void ratesCountMessagesSinceTheLastUpdate() throws InterruptedException {
+		SensorRegistry registry = new SensorRegistry(new SimpleMeterRegistry());
+		for (int i = 0; i < 10; i++) {
+			registry.recordMessage("device-3", "temperature");
+		}
+		Thread.sleep(20);
+
+		registry.updateRates();
+		double rate = registry.getSensors("device-3").get(0).ratePerSecond();
+		// 10 messages over the time since discovery, at most the 20 ms slept plus scheduling slack
+		assertTrue(rate > 0 && rate <= 10 * 1000.0 / 20, "rate " + rate);
+
+		Thread.sleep(5);
+		registry.updateRates();
+		assertEquals(0, registry.getSensors("device-3").get(0).ratePerSecond());
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.RecentReadings;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SensorRingBufferTest {
+
+	@Test
+	void keepsOnlyTheNewestReadingsOnceFull() {
+		SensorRingBuffer buffer = new SensorRingBuffer("device-3", "temperature", 3);
+		for (int i = 1; i <= 5; i++) {
+			buffer.add(i * 1000L, i);
+		}
+
+		RecentReadings recent = buffer.since(0);
+
+		assertEquals(3, buffer.size());
+		assertArrayEquals(new long[] { 3000, 4000, 5000 }, recent.timestamps());
+		assertArrayEquals(new double[] { 3, 4, 5 }, recent.values());
+	}
+
+	@Test
+	void returnsOnlyReadingsInsideTheWindow() {
+		SensorRingBuffer buffer = new SensorRingBuffer("device-3", "temperature", 4);
+		for (int i = 1; i <= 6; i++) {
+			buffer.add(i * 1000L, i);
+		}
+
+		RecentReadings recent = buffer.since(4500);
+
+		assertArrayEquals(new long[] { 5000, 6000 }, recent.timestamps());
+		assertArrayEquals(new double[] { 5, 6 }, recent.values());
+	}
+}
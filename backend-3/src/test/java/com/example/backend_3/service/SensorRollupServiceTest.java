@@ -0,0 +1,60 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorReading;
+import com.example.backend_3.service.SensorRollupService.Delta;
+import com.example.backend_3.service.SensorRollupService.Resolution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SensorRollupServiceTest {
+
+	private static final long MINUTE = 60_000;
+
+	@Test
+	void closesMinuteBucketsAndCheckpointsLongerOnes() {
+		SensorRollupService rollups = new SensorRollupService(null, new SimpleMeterRegistry(), true, 500, MINUTE);
+		rollups.record(reading(10_000, 1.0));
+		rollups.record(reading(20_000, 3.0));
+		rollups.record(reading(70_000, 2.0));
+
+		assertEquals(List.of(
+			new Delta(Resolution.MINUTE, "device-3", "temperature", 0, 2, 1.0, 3.0, 4.0, 3.0, 20_000),
+			new Delta(Resolution.HOUR, "device-3", "temperature", 0, 3, 1.0, 3.0, 6.0, 2.0, 70_000),
+			new Delta(Resolution.DAY, "device-3", "temperature", 0, 3, 1.0, 3.0, 6.0, 2.0, 70_000)
+		), rollups.collect(90_000));
+
+		// The open minute is only written once it has ended
+		assertEquals(List.of(new Delta(Resolution.MINUTE, "device-3", "temperature", MINUTE, 1, 2.0, 2.0, 2.0, 2.0, 70_000)),
+			rollups.collect(2 * MINUTE));
+	}
+
+	@Test
+	void writesLateReadingsAsSeparateDeltas() {
+		SensorRollupService rollups = new SensorRollupService(null, new SimpleMeterRegistry(), true, 500, MINUTE);
+		rollups.record(reading(70_000, 2.0));
+		rollups.record(reading(30_000, 5.0));
+
+		List<Delta> minutes = rollups.collect(2 * MINUTE).stream().filter(d -> d.resolution() == Resolution.MINUTE).toList();
+		assertEquals(List.of(
+			new Delta(Resolution.MINUTE, "device-3", "temperature", 0, 1, 5.0, 5.0, 5.0, 5.0, 30_000),
+			new Delta(Resolution.MINUTE, "device-3", "temperature", MINUTE, 1, 2.0, 2.0, 2.0, 2.0, 70_000)
+		), minutes);
+	}
+
+	@Test
+	void picksCoarsestResolutionThatTilesTheStep() {
+		assertEquals(Resolution.DAY, Resolution.coarsestFor(7 * 24 * 60 * MINUTE));
+		assertEquals(Resolution.HOUR, Resolution.coarsestFor(120 * MINUTE));
+		assertEquals(Resolution.MINUTE, Resolution.coarsestFor(5 * MINUTE));
+		assertNull(Resolution.coarsestFor(90_000));
+	}
+
+	private static SensorReading reading(long timestamp, double value) {
+		return new SensorReading("device-3", "temperature", value, timestamp);
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.backend_3.service;
+
+import com.example.backend_3.models.SensorReading;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorSnapshotServiceTest {
+
+	@Test
+	void readsOfUnknownDevicesLeaveNoEntries() {
+		SensorSnapshotService snapshots = new SensorSnapshotService();
+
+		SensorSnapshotService.Snapshot snapshot = snapshots.getSnapshot("nobody", device -> Map.of());
+		snapshots.getVersion("nobody");
+		snapshots.awaitChange("nobody", 0).cancel(false);
+
+		assertEquals(0, snapshot.version());
+		assertEquals("{}", new String(snapshot.json()));
+		assertEquals(0, snapshots.deviceCount());
+	}
+
+	@Test
+	void longPollOnUnknownDeviceCompletesWithItsFirstReading() {
+		SensorSnapshotService snapshots = new SensorSnapshotService();
+		CompletableFuture<Long> change = snapshots.awaitChange("device-3", 0);
+		assertFalse(change.isDone());
+
+		snapshots.markChanged("device-3");
+
+		assertTrue(change.isDone());
+		assertEquals(1L, change.join());
+		assertEquals(1, snapshots.getSnapshot("device-3",
+			device -> Map.of("temperature", new SensorReading(device, "temperature", 21.5, 1000))).version());
+	}
+}
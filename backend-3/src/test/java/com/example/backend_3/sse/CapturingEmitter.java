@@ -0,0 +1,45 @@
+package com.example.backend_3.sse;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every event as the text that would go on the wire instead of writing to a response.
+ */
+class CapturingEmitter extends SseEmitter {
+
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+	private volatile boolean completed;
+
+	@Override
+	public void send(Set<DataWithMediaType> items) {
+		StringBuilder event = new StringBuilder();
+		for (DataWithMediaType item : items) {
+			Object data = item.getData();
+			event.append(data instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : data);
+		}
+		events.add(event.toString());
+	}
+
+	@Override
+	public void complete() {
+		completed = true;
+	}
+
+	String next() throws InterruptedException {
+		return events.poll(5, TimeUnit.SECONDS);
+	}
+
+	boolean hasMore() {
+		return !events.isEmpty();
+	}
+
+	boolean isCompleted() {
+		return completed;
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.backend_3.sse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorEventStreamTest {
+
+	private static final long HOUR = 3_600_000;
+
+	private SensorEventStream stream;
+
+	@AfterEach
+	void tearDown() {
+		stream.stop();
+	}
+
+	@Test
+	void replaysEventsAfterLastEventId() throws Exception {
+		stream = start(10);
+		emit("temperature", "21.5");
+		emit("humidity", "40");
+		emit("voltage", "3.3");
+
+		CapturingEmitter emitter = new CapturingEmitter();
+		stream.subscribe(1L, emitter);
+
+		assertEquals("id:2\nevent:sensors\ndata:{\"humidity\":40}\n\n", emitter.next());
+		assertEquals("id:3\nevent:sensors\ndata:{\"voltage\":3.3}\n\n", emitter.next());
+		assertFalse(emitter.hasMore());
+	}
+
+	@Test
+	void startsFromSnapshotWhenLastEventIdIsNoLongerBuffered() throws Exception {
+		stream = start(2);
+		emit("temperature", "21.5");
+		emit("humidity", "40");
+		emit("voltage", "3.3");
+
+		// Event 1 has been overwritten, 7 is from an earlier run
+		for (Long lastEventId : new Long[] { null, 0L, 7L }) {
+			CapturingEmitter emitter = new CapturingEmitter();
+			stream.subscribe(lastEventId, emitter);
+
+			String event = emitter.next();
+			assertTrue(event.startsWith("id:3\nevent:sensors\ndata:{"), event);
+			assertTrue(event.contains("\"temperature\":21.5") && event.contains("\"humidity\":40") && event.contains("\"voltage\":3.3"), event);
+			assertFalse(emitter.hasMore());
+		}
+	}
+
+	@Test
+	void escapesTopicsInTheMergedEvent() throws Exception {
+		stream = start(10);
+		emit("device-\"7:hum\nidity", "{\"value\":1}");
+
+		CapturingEmitter emitter = new CapturingEmitter();
+		stream.subscribe(0L, emitter);
+
+		assertEquals("id:1\nevent:sensors\ndata:{\"device-\\\"7:hum\\nidity\":{\"value\":1}}\n\n", emitter.next());
+	}
+
+	private SensorEventStream start(int replaySize) {
+		SensorEventStream started = new SensorEventStream(new SimpleMeterRegistry(), replaySize, HOUR, HOUR, HOUR, 256, 1);
+		started.start();
+		return started;
+	}
+
+	private void emit(String topic, String value) {
+		stream.record(topic, value.getBytes(StandardCharsets.UTF_8));
+		stream.tick();
+	}
+}
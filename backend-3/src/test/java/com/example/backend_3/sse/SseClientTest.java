@@ -0,0 +1,42 @@
+package com.example.backend_3.sse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseClientTest {
+
+	@Test
+	void closesClientWhoseBacklogExceedsTheLimit() {
+		CapturingEmitter emitter = new CapturingEmitter();
+		SseClient client = new SseClient(emitter, 2);
+		// Never runs the drain task, like a connection that stopped reading
+		Executor stalled = task -> {};
+
+		assertTrue(client.enqueue(SseEmitter.event().id("1").build(), stalled));
+		assertTrue(client.enqueue(SseEmitter.event().id("2").build(), stalled));
+		assertFalse(client.enqueue(SseEmitter.event().id("3").build(), stalled));
+		assertTrue(client.isClosed());
+		assertTrue(emitter.isCompleted());
+	}
+
+	@Test
+	void sendsQueuedEventsInOrder() throws Exception {
+		CapturingEmitter emitter = new CapturingEmitter();
+		SseClient client = new SseClient(emitter, 2);
+
+		client.enqueue(SseEmitter.event().id("1").build(), Runnable::run);
+		client.enqueue(SseEmitter.event().id("2").build(), Runnable::run);
+		client.enqueue(SseEmitter.event().id("3").build(), Runnable::run);
+
+		assertEquals("id:1\n\n", emitter.next());
+		assertEquals("id:2\n\n", emitter.next());
+		assertEquals("id:3\n\n", emitter.next());
+		assertFalse(client.isClosed());
+	}
+}
@@ -0,0 +1,141 @@
+package com.example.backend_3.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the handler directly and flushes the throttle by hand instead of starting its tick thread.
+ */
+class DataWebSocketHandlerTest {
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final DataWebSocketHandler handler = new DataWebSocketHandler(meterRegistry, 5000, 512 * 1024, 50, 20);
+	private final List<WebSocketMessage<?>> sent = new ArrayList<>();
+
+	@Test
+	void capsRequestedRatesAtTheServerLimit() throws Exception {
+		WebSocketSession session = connect(handler, "s1");
+
+		for (double maxHz : new double[] { 0, -5, 100 }) {
+			handler.handleTextMessage(session, new TextMessage("{\"maxHz\":" + maxHz + "}"));
+			assertEquals(20, lastReply().get("maxHz").asDouble(), 1e-6);
+		}
+		handler.handleTextMessage(session, new TextMessage("{\"maxHz\":2}"));
+		assertEquals(2, lastReply().get("maxHz").asDouble(), 1e-6);
+	}
+
+	@Test
+	void sendsOnlySubscribedTopics() throws Exception {
+		WebSocketSession session = connect(handler, "s1");
+		handler.handleTextMessage(session, new TextMessage("{\"subscribe\":[\"temperature\",\"device-7:*\"]}"));
+		assertEquals(Set.of("temperature", "device-7:*"), Set.copyOf(objectMapper.convertValue(lastReply().get("subscribed"), List.class)));
+		sent.clear();
+
+		handler.broadcast("device-3", "temperature", frame("t3"));
+		handler.broadcast("device-3", "humidity", frame("h3"));
+		handler.broadcast("device-7", "device-7:humidity", frame("h7"));
+		handler.flushThrottled();
+
+		assertEquals(Set.of("t3", "h7"), payloads());
+	}
+
+	@Test
+	void unsubscribeRemovesTopics() throws Exception {
+		WebSocketSession session = connect(handler, "s1");
+		handler.handleTextMessage(session, new TextMessage("{\"subscribe\":[\"temperature\",\"humidity\"]}"));
+		handler.handleTextMessage(session, new TextMessage("{\"unsubscribe\":[\"humidity\"]}"));
+		assertEquals(List.of("temperature"), objectMapper.convertValue(lastReply().get("subscribed"), List.class));
+		sent.clear();
+
+		handler.broadcast("device-3", "temperature", frame("t"));
+		handler.broadcast("device-3", "humidity", frame("h"));
+		handler.flushThrottled();
+
+		assertEquals(Set.of("t"), payloads());
+	}
+
+	@Test
+	void coalescesThrottledFramesToTheLatestPerTopic() throws Exception {
+		connect(handler, "s1");
+
+		handler.broadcast("device-3", "temperature", frame("t1"));
+		handler.broadcast("device-3", "temperature", frame("t2"));
+		handler.broadcast("device-3", "humidity", frame("h1"));
+		handler.broadcast("device-3", "temperature", frame("t3"));
+		handler.flushThrottled();
+
+		assertEquals(Set.of("t3", "h1"), payloads());
+		assertEquals(2, meterRegistry.get("websocket.frames.dropped").tag("reason", "coalesced").counter().count());
+
+		// The next frame waits for the session's interval, 50 ms at 20 Hz
+		sent.clear();
+		handler.broadcast("device-3", "temperature", frame("t4"));
+		handler.flushThrottled();
+		assertTrue(sent.isEmpty());
+		Thread.sleep(60);
+		handler.flushThrottled();
+		assertEquals(Set.of("t4"), payloads());
+	}
+
+	@Test
+	void sendsImmediatelyWhenTheServerHasNoLimit() throws Exception {
+		DataWebSocketHandler unlimited = new DataWebSocketHandler(meterRegistry, 5000, 512 * 1024, 50, 0);
+		connect(unlimited, "s1");
+
+		unlimited.broadcast("device-3", "temperature", frame("t1"));
+		unlimited.broadcast("device-3", "temperature", frame("t2"));
+
+		assertEquals(List.of("t1", "t2"), sent.stream().map(message -> ((TextMessage) message).getPayload()).toList());
+	}
+
+	@Test
+	void repliesWithAnErrorToInvalidMessages() throws Exception {
+		WebSocketSession session = connect(handler, "s1");
+
+		handler.handleTextMessage(session, new TextMessage("{not json"));
+		assertEquals("Invalid JSON message", lastReply().get("error").asText());
+
+		handler.handleTextMessage(session, new TextMessage("{\"format\":\"xml\"}"));
+		assertEquals("Unknown format: xml", lastReply().get("error").asText());
+	}
+
+	private WebSocketSession connect(DataWebSocketHandler target, String id) throws Exception {
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn(id);
+		when(session.isOpen()).thenReturn(true);
+		doAnswer(invocation -> sent.add(invocation.getArgument(0))).when(session).sendMessage(any());
+		target.afterConnectionEstablished(session);
+		return session;
+	}
+
+	private static byte[] frame(String payload) {
+		return payload.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private Set<String> payloads() {
+		return Set.copyOf(sent.stream().map(message -> ((TextMessage) message).getPayload()).toList());
+	}
+
+	private JsonNode lastReply() throws Exception {
+		return objectMapper.readTree(((TextMessage) sent.get(sent.size() - 1)).getPayload());
+	}
+}
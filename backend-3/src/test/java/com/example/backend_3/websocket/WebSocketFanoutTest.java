@@ -0,0 +1,71 @@
+package com.example.backend_3.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class WebSocketFanoutTest {
+
+	private static final byte[] CHANNEL = WebSocketFanout.CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+	private final DataWebSocketHandler handler = mock(DataWebSocketHandler.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final WebSocketFanout edge = new WebSocketFanout(handler, null, meterRegistry, "edge", 10, 10);
+
+	@Test
+	void relaysBothFramesUnchanged() {
+		byte[] json = "{\"value\":21.5}".getBytes(StandardCharsets.UTF_8);
+		byte[] binary = { (byte) 0xB5, 1, 2, 3 };
+
+		// Lengths are in bytes, the device name is not ASCII
+		edge.onMessage(new DefaultMessage(CHANNEL, WebSocketFanout.encode("thiết-bị-3", "temperature", json, binary)), null);
+
+		verify(handler).broadcast(eq("thiết-bị-3"), eq("temperature"), aryEq(json), aryEq(binary));
+		assertEquals(1, messages("relayed"));
+	}
+
+	@Test
+	void relaysJsonOnlyFramesWithoutBinary() {
+		byte[] json = "{\"value\":21.5}".getBytes(StandardCharsets.UTF_8);
+
+		edge.onMessage(new DefaultMessage(CHANNEL, WebSocketFanout.encode("device-3", "humidity", json, null)), null);
+
+		verify(handler).broadcast(eq("device-3"), eq("humidity"), aryEq(json), isNull());
+	}
+
+	@Test
+	void dropsMalformedMessagesAndIgnoresOtherChannels() {
+		edge.onMessage(new DefaultMessage(CHANNEL, new byte[] { 0, 9, 'x' }), null);
+		edge.onMessage(new DefaultMessage("sensor:device-3:temperature".getBytes(StandardCharsets.UTF_8),
+			WebSocketFanout.encode("device-3", "temperature", new byte[] { '1' }, null)), null);
+
+		verify(handler, never()).broadcast(any(), any(), any(), any());
+		assertEquals(1, messages("dropped"));
+	}
+
+	@Test
+	void dropsFramesOnceTheOutboxIsFull() {
+		WebSocketFanout ingest = new WebSocketFanout(handler, null, meterRegistry, "ingest", 1, 10);
+
+		ingest.dispatch("device-3", "temperature", new byte[] { '1' }, null);
+		ingest.dispatch("device-3", "temperature", new byte[] { '2' }, null);
+
+		verify(handler, never()).broadcast(any(), any(), any(), any());
+		assertEquals(1, messages("dropped"));
+	}
+
+	private double messages(String direction) {
+		return meterRegistry.get("websocket.fanout.messages").tag("direction", direction).counter().count();
+	}
+}